@@ -19,8 +19,6 @@ package name.jdstew.uphillahead;
 import android.content.Context;
 import android.util.TypedValue;
 
-import java.text.NumberFormat;
-import java.util.Objects;
 
 /**
  * The Calcs class provides static methods for basic operations, including: measuring the distance
@@ -271,6 +269,31 @@ public class Calcs {
         return Math.asin(Math.sin(radDist) * Math.sin(radPrevToObsNode - radPrevtoNext)) * AVERAGE_RADIUS;
     }
 
+    /**
+     * Computes the cross-track distance within a flat, projected frame (see LocalProjection),
+     * or the right angle distance of a point from the line made by two other points.  This
+     * method uses only vector arithmetic, and follows the same sign as getCrossTrackDist().
+     *
+     * @since version 1.3
+     * @param ax east value of the line's first point, in meters
+     * @param ay north value of the line's first point, in meters
+     * @param bx east value of the line's second point, in meters
+     * @param by north value of the line's second point, in meters
+     * @param px east value of the point to measure, in meters
+     * @param py north value of the point to measure, in meters
+     * @return the distance, in meters, positive when the point is right of the line
+     */
+    public static float getPlanarCrossTrackDist(float ax, float ay, float bx, float by, float px, float py) {
+        float dx = bx - ax;
+        float dy = by - ay;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0.0f) {
+            return (float) Math.sqrt((px - ax) * (px - ax) + (py - ay) * (py - ay));
+        }
+
+        return ((px - ax) * dy - (py - ay) * dx) / length;
+    }
+
     /**
      * Computes the angle, in radians, along the Earth's surface
      *
@@ -310,13 +333,25 @@ public class Calcs {
     }
 
     /**
-     * Calculates hiker pace at slope and elevation
+     * Calculates hiker pace at slope and elevation, using the default PaceTable
      *
      * @param elev  Elevation of hiker, in meters
      * @param slope Slope of trail ahead
      * @return Pace of hiker, reduced by percent of oxygen compared to sea level, in kilometers per hour (km/hr)
      */
     public static double getPace(double slope, double elev) {
+        return PaceTable.getCurrent().getPace(slope, elev);
+    }
+
+    /**
+     * Calculates hiker pace at slope and elevation, without the PaceTable approximation
+     *
+     * @since version 1.3
+     * @param elev  Elevation of hiker, in meters
+     * @param slope Slope of trail ahead
+     * @return Pace of hiker, reduced by percent of oxygen compared to sea level, in kilometers per hour (km/hr)
+     */
+    public static double getExactPace(double slope, double elev) {
         return getPaceAtElev(getPaceAtSlope(slope), elev, slope);
     }
 
@@ -369,23 +404,7 @@ public class Calcs {
      * @return displayed time
      */
     public static String getDisplayedTime(double time, String system) {
-        NumberFormat nf = NumberFormat.getInstance();
-        nf.setMaximumFractionDigits(0);
-        nf.setMinimumIntegerDigits(2);
-
-        // examples: "+0:45", "+1:46"
-        if (system.compareTo(Config.SYSTEM_IMPERIAL) == 0) {
-            time = time / Units.KILOMETERS_TO_MILES;
-            int hours = (int)time;
-            int minutes = (int)((time - (double)hours) * 60.0);
-
-            return hours + ":" + nf.format(minutes);
-        } else {
-            int hours = (int)time;
-            int minutes = (int)((time - (double)hours) * 60.0);
-
-            return hours + ":" + nf.format(minutes);
-        }
+        return DisplayFormatter.appendTime(new StringBuilder(), time, system).toString();
     }
 
     /**
@@ -396,32 +415,7 @@ public class Calcs {
      * @return displayed distance
      */
     public static String getDisplayedDist(double dist, String system) {
-        NumberFormat nf = NumberFormat.getInstance();
-        nf.setMaximumFractionDigits(1);
-        nf.setMinimumIntegerDigits(1);
-
-        if (system.compareTo(Config.SYSTEM_IMPERIAL) == 0) {
-            dist = Calcs.getMetersToMiles(dist);
-
-            if (dist >= 1.0) {
-                nf.setMinimumFractionDigits(1);
-                return nf.format(dist) + "mi";
-            } else if (dist >= 0.25) { // 100 yards
-                nf.setMaximumFractionDigits(2);
-                return nf.format(dist) + "mi";
-            } else {
-                nf.setMaximumFractionDigits(0);
-                return nf.format(dist * 1_760.0) + "yds";
-            }
-        } else {
-            if (dist >= 1_000.0) {
-                nf.setMinimumFractionDigits(1);
-                return nf.format(dist / 1_000.0) + "km"; // 1,000 meters
-            } else {
-                nf.setMaximumFractionDigits(0);
-                return nf.format(dist) + "m";
-            }
-        }
+        return DisplayFormatter.appendDist(new StringBuilder(), dist, system).toString();
     }
 
     /**
@@ -432,15 +426,6 @@ public class Calcs {
      * @return displayed distance
      */
     public static String getDisplayedElev(double elev, String system) {
-        NumberFormat nf = NumberFormat.getInstance();
-        nf.setGroupingUsed(true);
-        nf.setMaximumFractionDigits(0);
-
-        if (Objects.equals(system, Config.SYSTEM_IMPERIAL)) {
-            elev = Calcs.getMetersToFeet(elev);
-            return nf.format(elev) + "ft";
-        } else {
-            return nf.format(elev) + "m";
-        }
+        return DisplayFormatter.appendElev(new StringBuilder(), elev, system).toString();
     }
 }
@@ -244,6 +244,68 @@ public class Config {
      */
     public static final float PACE_BIAS_MAX = 2.0f;
 
+    /**
+     * Pace model used for time calculations and trail difficulty.
+     */
+    public static final String PACE_MODEL_KEY = "pace_model_pref_key";
+    /**
+     * Variant of Tobler's hiking function, slowed on climbs at elevation.
+     */
+    public static final String PACE_MODEL_TOBLER = "Tobler";
+    /**
+     * Naismith's rule, 5 km/hr plus one hour per 600 m of ascent.
+     */
+    public static final String PACE_MODEL_NAISMITH = "Naismith";
+    /**
+     * Langmuir's corrections to Naismith's rule for descents.
+     */
+    public static final String PACE_MODEL_LANGMUIR = "Langmuir";
+    /**
+     * User-tunable pace model.
+     */
+    public static final String PACE_MODEL_CUSTOM = "Custom";
+    /**
+     * Default pace model.
+     */
+    public static final String PACE_MODEL_DEFAULT = PACE_MODEL_TOBLER;
+
+    /**
+     * Custom pace model's pace on level ground, in tenths of km/hr (i.e., seek bar values).
+     */
+    public static final String PACE_CUSTOM_FLAT_KEY = "pace_custom_flat_pref_key";
+    /**
+     * Custom pace model's default pace on level ground, in tenths of km/hr.
+     */
+    public static final int PACE_CUSTOM_FLAT_DEFAULT = 50;
+    /**
+     * Custom pace model's meters climbed per hour.
+     */
+    public static final String PACE_CUSTOM_CLIMB_KEY = "pace_custom_climb_pref_key";
+    /**
+     * Custom pace model's default meters climbed per hour.
+     */
+    public static final int PACE_CUSTOM_CLIMB_DEFAULT = 600;
+    /**
+     * Custom pace model's use of the oxygen correction at elevation.
+     */
+    public static final String PACE_CUSTOM_ALTITUDE_KEY = "pace_custom_altitude_pref_key";
+    /**
+     * Elevation slows climbs only.
+     */
+    public static final String PACE_ALTITUDE_CLIMBS = "Slows climbs only";
+    /**
+     * Elevation slows climbs, level and descending trail.
+     */
+    public static final String PACE_ALTITUDE_ALL = "Slows all slopes";
+    /**
+     * Elevation does not slow the pace.
+     */
+    public static final String PACE_ALTITUDE_NONE = "Not applied";
+    /**
+     * Default use of the oxygen correction at elevation.
+     */
+    public static final String PACE_ALTITUDE_DEFAULT = PACE_ALTITUDE_CLIMBS;
+
     /**
      * Distance and speed measurement system.
      */
@@ -295,4 +357,67 @@ public class Config {
      * Vertical bias maximum, or 90% down
      */
     public static final double VERTICAL_BIAS_MAX = 0.85;
+
+    /**
+     * Preference for trail mode, in which the graph is drawn only on a location fix or a user
+     * interaction, see GraphView.requestFrame().
+     */
+    public static final String TRAIL_MODE_KEY = "trail_mode_pref_key";
+
+    /**
+     * Preference for showing the performance overlay, see the Instrumentation class.
+     */
+    public static final String DEBUG_OVERLAY_KEY = "debug_overlay_pref_key";
+    /**
+     * Preference (a button) exporting the Instrumentation's histograms as CSV.
+     */
+    public static final String DEBUG_EXPORT_KEY = "debug_export_pref_key";
+    /**
+     * File name of the exported Instrumentation's histograms, within the app's external files.
+     */
+    public static final String DEBUG_EXPORT_FILE_NAME = "performance.csv";
+
+    /**
+     * Width of a tile of the drawn profile, see the ProfileTileCache class, in pixels
+     */
+    public static final int TILE_WIDTH = 256;
+    /**
+     * Tallest tile drawn, in pixels; a taller section of the profile is drawn without tiles
+     */
+    public static final int TILE_MAX_HEIGHT = 4_096;
+    /**
+     * Zooms at which tiles are drawn, per doubling of the zoom; the profile is scaled up (by
+     * less than 2^(1/4)) from the closest
+     */
+    public static final int TILE_ZOOMS_PER_DOUBLING = 4;
+    /**
+     * Tiles drawn ahead of those displayed, in the direction of travel
+     */
+    public static final int TILE_PREFETCH_COUNT = 4;
+    /**
+     * Fraction of the maximum heap held by the tiles in memory, as a divisor
+     */
+    public static final int TILE_MEMORY_DIVISOR = 8;
+    /**
+     * Bytes of tiles kept in the app's cache directory, after which the oldest are deleted
+     */
+    public static final long TILE_DISK_BYTES = 64L * 1_024L * 1_024L;
+    /**
+     * Directory of the tiles, within the app's cache directory
+     */
+    public static final String TILE_DIRECTORY = "profile_tiles";
+
+    /**
+     * Buckets of the overview of a whole route, see the ProfileOverview class
+     */
+    public static final int OVERVIEW_BUCKETS = 512;
+
+    /**
+     * Width of an exported profile, see the ProfileExporter class, in pixels
+     */
+    public static final int EXPORT_WIDTH = 1_800;
+    /**
+     * Height of an exported profile, in pixels
+     */
+    public static final int EXPORT_HEIGHT = 800;
 }
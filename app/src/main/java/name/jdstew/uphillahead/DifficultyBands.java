@@ -0,0 +1,149 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The DifficultyBands class holds the difficulty (easy, medium or hard) of a Graph's Edges,
+ * for one direction of travel, as runs of adjacent Edges of the same difficulty.  A run spans
+ * the horizontal distances, from the Graph's first Node, of its first and last Edges, so that
+ * the GraphView draws one band per run, rather than one per Edge.
+ *
+ * Runs are ordered by distance, whatever the direction of travel.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class DifficultyBands {
+
+    static final byte EASY = 0;
+    static final byte MEDIUM = 1;
+    static final byte HARD = 2;
+
+    private final double[] starts; // meters from the first Node
+    private final double[] ends; // meters from the first Node
+    private final byte[] difficulties;
+    private final int count;
+
+    /**
+     * Creates the runs of Edges of the same difficulty.
+     *
+     * @param dists horizontal distance of each Node from the first Node, in meters
+     * @param paces pace of each Edge in the direction of travel (Edge i joins Node i to i + 1), in km/hr
+     */
+    DifficultyBands(double[] dists, double[] paces) {
+        int edgeCount = paces.length;
+        double[] runStarts = new double[edgeCount];
+        double[] runEnds = new double[edgeCount];
+        byte[] runDifficulties = new byte[edgeCount];
+
+        int runs = 0;
+        for (int i = 0; i < edgeCount; ++i) {
+            byte difficulty = getDifficulty(paces[i]);
+            if (runs > 0 && runDifficulties[runs - 1] == difficulty) {
+                runEnds[runs - 1] = dists[i + 1]; // extend the run
+            } else {
+                runStarts[runs] = dists[i];
+                runEnds[runs] = dists[i + 1];
+                runDifficulties[runs] = difficulty;
+                ++runs;
+            }
+        }
+
+        starts = new double[runs];
+        ends = new double[runs];
+        difficulties = new byte[runs];
+        System.arraycopy(runStarts, 0, starts, 0, runs);
+        System.arraycopy(runEnds, 0, ends, 0, runs);
+        System.arraycopy(runDifficulties, 0, difficulties, 0, runs);
+        count = runs;
+    }
+
+    /**
+     * Returns the difficulty of hiking at a pace, without the user's pace bias.
+     *
+     * @param pace in km/hr
+     * @return EASY, MEDIUM or HARD
+     */
+    static byte getDifficulty(double pace) {
+        if (pace > Config.DIFFICULTY_EASY_MIN) {
+            return EASY;
+        } else if (pace < Config.DIFFICULTY_HARD_MAX) {
+            return HARD;
+        } else {
+            return MEDIUM;
+        }
+    }
+
+    /**
+     * Gets the number of runs.
+     *
+     * @return number of runs
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the start of a run.
+     *
+     * @param run index of the run
+     * @return horizontal distance from the first Node, in meters
+     */
+    double getStart(int run) {
+        return starts[run];
+    }
+
+    /**
+     * Gets the end of a run.
+     *
+     * @param run index of the run
+     * @return horizontal distance from the first Node, in meters
+     */
+    double getEnd(int run) {
+        return ends[run];
+    }
+
+    /**
+     * Gets the difficulty of a run.
+     *
+     * @param run index of the run
+     * @return EASY, MEDIUM or HARD
+     */
+    byte getDifficulty(int run) {
+        return difficulties[run];
+    }
+
+    /**
+     * Returns the first run which ends after a distance, found by binary search.
+     *
+     * @param dist horizontal distance from the first Node, in meters
+     * @return index of the run, or the number of runs if all end at or before the distance
+     */
+    int getFirstRunEndingAfter(double dist) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= dist) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
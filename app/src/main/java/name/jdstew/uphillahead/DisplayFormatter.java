@@ -0,0 +1,192 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import java.text.DecimalFormatSymbols;
+
+/**
+ * The DisplayFormatter class appends displayed distances, times and elevations to a caller's
+ * StringBuilder, using fixed-point integer arithmetic and constant unit suffixes.  Unlike
+ * NumberFormat, nothing is allocated per call, so a View may reuse one StringBuilder for its
+ * text on every frame (see Canvas.drawText(CharSequence, int, int, ...)).
+ *
+ * The output matches that of NumberFormat.getInstance() for the same digits, including the
+ * locale's decimal and grouping separators and rounding half to even of the number's shortest
+ * decimal representation, as Android's NumberFormat does (e.g., 9.95 is "10.0" and 0.25 is
+ * "0.2"), except that negative zero (-0.0) is displayed without its sign.  See
+ * DisplayFormatterTest.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class DisplayFormatter {
+
+    private static final String MILES_SUFFIX = "mi";
+    private static final String YARDS_SUFFIX = "yds";
+    private static final String KILOMETERS_SUFFIX = "km";
+    private static final String METERS_SUFFIX = "m";
+    private static final String FEET_SUFFIX = "ft";
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+
+    private static final char DECIMAL_SEPARATOR;
+    private static final char GROUPING_SEPARATOR;
+
+    static {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        DECIMAL_SEPARATOR = symbols.getDecimalSeparator();
+        GROUPING_SEPARATOR = symbols.getGroupingSeparator();
+    }
+
+    private DisplayFormatter() {
+        // static methods only
+    }
+
+    /**
+     * Appends a display of time in hours:minutes format (e.g., "0:45", "12:06").
+     *
+     * @param sb the StringBuilder to append to
+     * @param time in decimal hours
+     * @param system see Config class for metric or imperial
+     * @return the StringBuilder provided
+     */
+    public static StringBuilder appendTime(StringBuilder sb, double time, String system) {
+        if (Config.SYSTEM_IMPERIAL.equals(system)) {
+            time = time / Units.KILOMETERS_TO_MILES;
+        }
+        int hours = (int) time;
+        int minutes = (int) ((time - (double) hours) * 60.0);
+
+        sb.append(hours).append(':');
+        if (minutes < 10) {
+            sb.append('0');
+        }
+        return sb.append(minutes);
+    }
+
+    /**
+     * Appends a display of distance in a system-appropriate format.
+     *
+     * @param sb the StringBuilder to append to
+     * @param dist in meters
+     * @param system see Config class for metric or imperial
+     * @return the StringBuilder provided
+     */
+    public static StringBuilder appendDist(StringBuilder sb, double dist, String system) {
+        if (Config.SYSTEM_IMPERIAL.equals(system)) {
+            dist = Calcs.getMetersToMiles(dist);
+
+            if (dist >= 1.0) {
+                return appendFixed(sb, dist, 1, 1, true).append(MILES_SUFFIX);
+            } else if (dist >= 0.25) { // 100 yards
+                return appendFixed(sb, dist, 0, 2, true).append(MILES_SUFFIX);
+            } else {
+                return appendFixed(sb, dist * 1_760.0, 0, 0, true).append(YARDS_SUFFIX);
+            }
+        } else {
+            if (dist >= 1_000.0) {
+                return appendFixed(sb, dist / 1_000.0, 1, 1, true).append(KILOMETERS_SUFFIX); // 1,000 meters
+            } else {
+                return appendFixed(sb, dist, 0, 0, true).append(METERS_SUFFIX);
+            }
+        }
+    }
+
+    /**
+     * Appends a display of elevation in a system-appropriate format.
+     *
+     * @param sb the StringBuilder to append to
+     * @param elev in meters
+     * @param system see Config class for metric or imperial
+     * @return the StringBuilder provided
+     */
+    public static StringBuilder appendElev(StringBuilder sb, double elev, String system) {
+        if (Config.SYSTEM_IMPERIAL.equals(system)) {
+            return appendFixed(sb, Calcs.getMetersToFeet(elev), 0, 0, true).append(FEET_SUFFIX);
+        } else {
+            return appendFixed(sb, elev, 0, 0, true).append(METERS_SUFFIX);
+        }
+    }
+
+    /**
+     * Appends a number rounded to a fixed number of fraction digits, dropping trailing zeros
+     * beyond the minimum number of fraction digits.
+     *
+     * @param sb the StringBuilder to append to
+     * @param value the number to append
+     * @param minFractionDigits fraction digits always displayed
+     * @param maxFractionDigits fraction digits displayed at most, up to 6
+     * @param isGrouped whether thousands are separated
+     * @return the StringBuilder provided
+     */
+    public static StringBuilder appendFixed(StringBuilder sb, double value, int minFractionDigits, int maxFractionDigits, boolean isGrouped) {
+        long scale = POWERS_OF_TEN[maxFractionDigits];
+        double magnitude = Math.abs(value);
+        long scaled = (long) Math.floor(magnitude * scale);
+        // a half if it is the double nearest the decimal half (e.g., 1.015, although 1.015 * 100
+        // is 101.49999...), since the quotient of the division is correctly rounded
+        if ((scaled + 0.5) / scale == magnitude) {
+            if ((scaled & 1L) != 0L) { // to the even digit
+                ++scaled;
+            }
+        } else if (magnitude * scale - scaled > 0.5) {
+            ++scaled;
+        }
+        if (value < 0.0) {
+            sb.append('-');
+        }
+
+        long whole = scaled / scale;
+        long fraction = scaled % scale;
+        if (isGrouped) {
+            appendGrouped(sb, whole);
+        } else {
+            sb.append(whole);
+        }
+
+        int digits = maxFractionDigits;
+        while (digits > minFractionDigits && fraction % 10L == 0L) {
+            fraction /= 10L;
+            --digits;
+        }
+        if (digits > 0) {
+            sb.append(DECIMAL_SEPARATOR);
+            for (int i = digits - 1; i >= 0; --i) {
+                sb.append((char) ('0' + fraction / POWERS_OF_TEN[i] % 10L));
+            }
+        }
+        return sb;
+    }
+
+    private static void appendGrouped(StringBuilder sb, long whole) {
+        if (whole < 1_000L) {
+            sb.append(whole);
+            return;
+        }
+
+        appendGrouped(sb, whole / 1_000L);
+        long group = whole % 1_000L;
+        sb.append(GROUPING_SEPARATOR);
+        if (group < 100L) {
+            sb.append('0');
+        }
+        if (group < 10L) {
+            sb.append('0');
+        }
+        sb.append(group);
+    }
+}
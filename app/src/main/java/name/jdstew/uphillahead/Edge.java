@@ -19,7 +19,6 @@ package name.jdstew.uphillahead;
 import androidx.annotation.NonNull;
 
 import java.io.Serializable;
-import java.text.NumberFormat;
 
 /**
  * The Edge class represents the edge between two Nodes. The edges are
@@ -50,13 +49,9 @@ public class Edge implements Serializable {
         nextNode = b;
 
         if (getHorizontalDistance() > 30.0 && getSlope() > 0.7 || getSlope() < -0.7) {
-            NumberFormat nf = NumberFormat.getInstance();
-            nf.setMaximumFractionDigits(2);
-            nf.setMinimumIntegerDigits(1);
-
 //            System.out.println("Caution, significant slope change:");
 //            System.out.println("   from: "  + prevNode);
-//            System.out.println("   edge: " + nf.format(hDist) + "m, " + nf.format(slope * 100) + "%");
+//            System.out.println("   edge: " + hDist + "m, " + slope * 100 + "%");
 //            System.out.println("     to: "  + nextNode);
         }
     }
@@ -172,11 +167,9 @@ public class Edge implements Serializable {
     @NonNull
     @Override
     public String toString() {
-        NumberFormat nf = NumberFormat.getInstance();
-        nf.setMaximumFractionDigits(2);
-        nf.setMinimumIntegerDigits(1);
-
-        return "   Edge: " + nf.format(hDist) + " meters, " + nf.format(vDist)
-                + " meters gain, " + nf.format(slope) + "%";
+        StringBuilder sb = new StringBuilder("   Edge: ");
+        DisplayFormatter.appendFixed(sb, hDist, 0, 2, true).append(" meters, ");
+        DisplayFormatter.appendFixed(sb, vDist, 0, 2, true).append(" meters gain, ");
+        return DisplayFormatter.appendFixed(sb, slope, 0, 2, true).append('%').toString();
     }
 }
@@ -0,0 +1,627 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The FrameRequest class holds everything the GraphRenderThread needs to draw one frame of the
+ * GraphView: the observer's position, the display preferences, the touch point and the size
+ * of the surface.  A FrameRequest is never changed once it is created (its fields are final);
+ * the UI thread derives a new request with one of the with...() methods and posts that
+ * instead, so the render thread never reads a value while it is being changed.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class FrameRequest {
+
+    /**
+     * Touch coordinate of no touch point, which is outside of any surface
+     */
+    public static final int NO_TOUCH = Integer.MAX_VALUE;
+
+    // observer
+    private final double latitude;
+    private final double longitude;
+    private final double elevation;
+    private final boolean isLocationFixed; // false if simulated or not yet located
+    private final long locationTime;
+    private final String displayedLocationTime;
+    private final boolean isOffGraphAcceptable;
+    private final TrailMatch trailMatch; // null until matched to the route, see withTrailMatch()
+
+    // preferences
+    private final GraphSettings settings;
+    private final boolean isNightMode;
+
+    // view during a scroll gesture, drawn by transforming the profile drawn at the base's view
+    private final boolean isGesture;
+    private final double gestureZoomDist;
+    private final double gestureVertBias;
+    private final double baseZoomDist; // a level of detail, see getLevelOfDetail()
+    private final double baseVertBias;
+
+    // surface and touch
+    private final int width;
+    private final int height;
+    private final int touchX;
+    private final int touchY;
+    private final boolean isScrubbing; // the touch point follows a finger, see withScrubPoint()
+    private final int touchVersion; // changed by each touch point, see getTouchVersion()
+
+    private final int baseVersion; // changed by everything but the touch point, see isSameBase()
+
+    /**
+     * Creates a request of the observer's stored location, without a touch point or surface.
+     *
+     * @param latitude of the observer, in degrees
+     * @param longitude of the observer, in degrees
+     * @param elevation of the observer, in meters
+     */
+    public FrameRequest(double latitude, double longitude, double elevation) {
+        this(new Builder(latitude, longitude, elevation));
+    }
+
+    private FrameRequest(Builder b) {
+        latitude = b.latitude;
+        longitude = b.longitude;
+        elevation = b.elevation;
+        isLocationFixed = b.isLocationFixed;
+        locationTime = b.locationTime;
+        displayedLocationTime = b.displayedLocationTime;
+        isOffGraphAcceptable = b.isOffGraphAcceptable;
+        trailMatch = b.trailMatch;
+        settings = b.settings;
+        isNightMode = b.isNightMode;
+        isGesture = b.isGesture;
+        gestureZoomDist = b.gestureZoomDist;
+        gestureVertBias = b.gestureVertBias;
+        baseZoomDist = b.baseZoomDist;
+        baseVertBias = b.baseVertBias;
+        width = b.width;
+        height = b.height;
+        touchX = b.touchX;
+        touchY = b.touchY;
+        isScrubbing = b.isScrubbing;
+        touchVersion = b.touchVersion;
+        baseVersion = b.baseVersion;
+    }
+
+    /**
+     * The values of a request while it is derived by a with...() method, on the UI thread,
+     * before it is built (and so before it may be posted).
+     */
+    private static final class Builder {
+        private double latitude;
+        private double longitude;
+        private double elevation;
+        private boolean isLocationFixed;
+        private long locationTime;
+        private String displayedLocationTime;
+        private boolean isOffGraphAcceptable;
+        private TrailMatch trailMatch;
+        private GraphSettings settings;
+        private boolean isNightMode;
+        private boolean isGesture;
+        private double gestureZoomDist;
+        private double gestureVertBias;
+        private double baseZoomDist;
+        private double baseVertBias;
+        private int width;
+        private int height;
+        private int touchX;
+        private int touchY;
+        private boolean isScrubbing;
+        private int touchVersion;
+        private int baseVersion;
+
+        private Builder(double latitude, double longitude, double elevation) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.elevation = elevation;
+            touchX = NO_TOUCH;
+            touchY = NO_TOUCH;
+        }
+
+        private Builder(FrameRequest other) {
+            latitude = other.latitude;
+            longitude = other.longitude;
+            elevation = other.elevation;
+            isLocationFixed = other.isLocationFixed;
+            locationTime = other.locationTime;
+            displayedLocationTime = other.displayedLocationTime;
+            isOffGraphAcceptable = other.isOffGraphAcceptable;
+            trailMatch = other.trailMatch;
+            settings = other.settings;
+            isNightMode = other.isNightMode;
+            isGesture = other.isGesture;
+            gestureZoomDist = other.gestureZoomDist;
+            gestureVertBias = other.gestureVertBias;
+            baseZoomDist = other.baseZoomDist;
+            baseVertBias = other.baseVertBias;
+            width = other.width;
+            height = other.height;
+            touchX = other.touchX;
+            touchY = other.touchY;
+            isScrubbing = other.isScrubbing;
+            touchVersion = other.touchVersion;
+            baseVersion = other.baseVersion;
+        }
+
+        private FrameRequest build() {
+            return new FrameRequest(this);
+        }
+    }
+
+    /**
+     * Returns a copy of this request at a new observer location, which also resets whether
+     * an off-trail location was accepted, and its match to the route, see withTrailMatch().
+     *
+     * @param latitude of the observer, in degrees
+     * @param longitude of the observer, in degrees
+     * @param elevation of the observer, in meters
+     * @param isLocationFixed true if located by location services, false if simulated
+     * @param locationTime time of the location, in milliseconds since the epoch
+     * @param displayedLocationTime time of the location, as displayed
+     * @return the new request
+     */
+    public FrameRequest withObserver(double latitude, double longitude, double elevation,
+                                     boolean isLocationFixed, long locationTime, String displayedLocationTime) {
+        Builder r = new Builder(this);
+        r.baseVersion = baseVersion + 1;
+        r.latitude = latitude;
+        r.longitude = longitude;
+        r.elevation = elevation;
+        r.isLocationFixed = isLocationFixed;
+        r.locationTime = locationTime;
+        r.displayedLocationTime = displayedLocationTime;
+        r.isOffGraphAcceptable = false;
+        r.trailMatch = null;
+        return r.build();
+    }
+
+    /**
+     * Returns a copy of this request, with the observer's location matched to the route.
+     *
+     * @param trailMatch the match, or null if there is no route
+     * @return the new request
+     */
+    FrameRequest withTrailMatch(TrailMatch trailMatch) {
+        Builder r = new Builder(this);
+        r.baseVersion = baseVersion + 1;
+        r.trailMatch = trailMatch;
+        return r.build();
+    }
+
+    /**
+     * Returns a copy of this request, with whether an off-trail location was accepted.
+     *
+     * @param isOffGraphAcceptable true if the user accepted the location as off trail
+     * @return the new request
+     */
+    public FrameRequest withOffGraphAcceptable(boolean isOffGraphAcceptable) {
+        Builder r = new Builder(this);
+        r.baseVersion = baseVersion + 1;
+        r.isOffGraphAcceptable = isOffGraphAcceptable;
+        return r.build();
+    }
+
+    /**
+     * Returns a copy of this request, with a snapshot of the display preferences, which also
+     * ends any scroll gesture.  A change of route or direction resets the observer's match to
+     * the route, see withTrailMatch().
+     *
+     * @param settings the snapshot of the preferences
+     * @param isNightMode true if the UI is in night mode
+     * @return the new request
+     */
+    public FrameRequest withSettings(GraphSettings settings, boolean isNightMode) {
+        Builder r = new Builder(this);
+        r.baseVersion = baseVersion + 1;
+        if (this.settings == null || this.settings.getRouteName().compareTo(settings.getRouteName()) != 0) {
+            r.isOffGraphAcceptable = false; // reset if route changed
+            r.trailMatch = null;
+        } else if (this.settings.isDirectionToEnd() != settings.isDirectionToEnd()) {
+            r.trailMatch = null;
+        }
+        r.settings = settings;
+        r.isNightMode = isNightMode;
+        r.isGesture = false;
+        return r.build();
+    }
+
+    /**
+     * Returns a copy of this request, with the view of a scroll gesture in progress.  The
+     * profile is drawn again only when the zoom crosses into another level of detail;
+     * otherwise, the profile already drawn is scaled and translated to the new view.
+     *
+     * @param zoomDist distance displayed across the width of the surface, in meters
+     * @param vertBias vertical bias of the graph, see Config.VERTICAL_BIAS_*
+     * @return the new request
+     */
+    public FrameRequest withGestureView(double zoomDist, double vertBias) {
+        Builder r = new Builder(this);
+        r.isGesture = true;
+        r.gestureZoomDist = zoomDist;
+        r.gestureVertBias = vertBias;
+        double levelOfDetail = getLevelOfDetail(zoomDist);
+        if (!isGesture || levelOfDetail != baseZoomDist) {
+            r.baseVersion = baseVersion + 1;
+            r.baseZoomDist = levelOfDetail;
+            r.baseVertBias = vertBias;
+        }
+        return r.build();
+    }
+
+    /**
+     * Returns the level of detail of a zoom, which is the zoom rounded up to the next power of
+     * two times Config.ZOOM_MIN.  A profile drawn at the level of detail spans at least the
+     * width of the zoom, so it only ever needs to be scaled up (by less than 2) to the zoom.
+     *
+     * @param zoomDist distance displayed across the width of the surface, in meters
+     * @return distance of the level of detail, in meters
+     */
+    static double getLevelOfDetail(double zoomDist) {
+        double level = Math.ceil(Math.log(zoomDist / Config.ZOOM_MIN) / Math.log(2.0));
+        return Config.ZOOM_MIN * Math.pow(2.0, Math.max(level, 0.0));
+    }
+
+    /**
+     * Returns a copy of this request, for a surface of a new size.
+     *
+     * @param width of the surface, in pixels
+     * @param height of the surface, in pixels
+     * @return the new request
+     */
+    public FrameRequest withSize(int width, int height) {
+        Builder r = new Builder(this);
+        r.baseVersion = baseVersion + 1;
+        r.width = width;
+        r.height = height;
+        return r.build();
+    }
+
+    /**
+     * Returns a copy of this request whose profile must be drawn again, although nothing in
+     * the request has changed (e.g., the hiking times were recomputed).
+     *
+     * @return the new request
+     */
+    public FrameRequest withBaseChanged() {
+        Builder r = new Builder(this);
+        r.baseVersion = baseVersion + 1;
+        return r.build();
+    }
+
+    /**
+     * Returns a copy of this request, with a new touch point (or NO_TOUCH).  Only the touch
+     * feedback is drawn again for it, see isSameBase().
+     *
+     * @param touchX horizontal coordinate within the surface
+     * @param touchY vertical coordinate within the surface
+     * @return the new request
+     */
+    public FrameRequest withTouchPoint(int touchX, int touchY) {
+        Builder r = new Builder(this);
+        r.touchX = touchX;
+        r.touchY = touchY;
+        r.isScrubbing = false;
+        r.touchVersion = touchVersion + 1;
+        return r.build();
+    }
+
+    /**
+     * Returns a copy of this request, with a touch point following a finger scrubbing across
+     * the profile, whose readout is drawn without opening the details of an icon.
+     *
+     * @param touchX horizontal coordinate within the surface
+     * @param touchY vertical coordinate within the surface
+     * @return the new request
+     */
+    public FrameRequest withScrubPoint(int touchX, int touchY) {
+        Builder r = new Builder(this);
+        r.touchX = touchX;
+        r.touchY = touchY;
+        r.isScrubbing = true;
+        r.touchVersion = touchVersion + 1;
+        return r.build();
+    }
+
+    /**
+     * Gets the latitude of the observer.
+     *
+     * @return latitude, in degrees
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Gets the longitude of the observer.
+     *
+     * @return longitude, in degrees
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Gets the elevation of the observer.
+     *
+     * @return elevation, in meters
+     */
+    public double getElevation() {
+        return elevation;
+    }
+
+    /**
+     * Gets whether the location is from location services, rather than simulated.
+     *
+     * @return true if located by location services
+     */
+    public boolean isLocationFixed() {
+        return isLocationFixed;
+    }
+
+    /**
+     * Gets the time of the location.
+     *
+     * @return time, in milliseconds since the epoch
+     */
+    public long getLocationTime() {
+        return locationTime;
+    }
+
+    /**
+     * Gets the time of the location, as displayed.
+     *
+     * @return displayed time, or null if not located
+     */
+    public String getDisplayedLocationTime() {
+        return displayedLocationTime;
+    }
+
+    /**
+     * Gets whether the user accepted the location as off trail.
+     *
+     * @return true if accepted as off trail
+     */
+    public boolean isOffGraphAcceptable() {
+        return isOffGraphAcceptable;
+    }
+
+    /**
+     * Gets the observer's location matched to the route.
+     *
+     * @return the match, or null if not yet matched (or there is no route)
+     */
+    TrailMatch getTrailMatch() {
+        return trailMatch;
+    }
+
+    /**
+     * Gets the name of the selected route.
+     *
+     * @return route name
+     */
+    public String getRouteName() {
+        return settings.getRouteName();
+    }
+
+    /**
+     * Gets the direction of travel.
+     *
+     * @return true for from start-to-end manner
+     */
+    public boolean isDirectionToEnd() {
+        return settings.isDirectionToEnd();
+    }
+
+    /**
+     * Gets the measurement system.
+     *
+     * @return see Config class for metric or imperial
+     */
+    public String getSystem() {
+        return settings.getSystem();
+    }
+
+    /**
+     * Gets the distance displayed across the width of the surface.
+     *
+     * @return distance, in meters
+     */
+    public double getZoomDist() {
+        return isGesture ? gestureZoomDist : settings.getZoomDist();
+    }
+
+    /**
+     * Gets the distance across the width of the surface at which the profile is drawn, which
+     * differs from getZoomDist() only during a scroll gesture.
+     *
+     * @return distance, in meters
+     */
+    public double getBaseZoomDist() {
+        return isGesture ? baseZoomDist : settings.getZoomDist();
+    }
+
+    /**
+     * Gets the vertical bias of the graph.
+     *
+     * @return vertical bias, see Config.VERTICAL_BIAS_*
+     */
+    public double getVertBias() {
+        return isGesture ? gestureVertBias : settings.getVertBias();
+    }
+
+    /**
+     * Gets the vertical bias at which the profile is drawn, which differs from getVertBias()
+     * only during a scroll gesture.
+     *
+     * @return vertical bias, see Config.VERTICAL_BIAS_*
+     */
+    public double getBaseVertBias() {
+        return isGesture ? baseVertBias : settings.getVertBias();
+    }
+
+    /**
+     * Gets whether a scroll gesture is in progress.
+     *
+     * @return true while scrolling
+     */
+    public boolean isGesture() {
+        return isGesture;
+    }
+
+    /**
+     * Gets the vertical exaggeration of the graph.
+     *
+     * @return vertical exaggeration
+     */
+    public double getVertExag() {
+        return settings.getVertExag();
+    }
+
+    /**
+     * Gets the pace multiplier of the user.
+     *
+     * @return pace multiplier
+     */
+    public double getPaceBias() {
+        return settings.getPaceBias();
+    }
+
+    /**
+     * Gets the distance within which the observer is on trail.
+     *
+     * @return distance, in meters
+     */
+    public int getSnapToTrail() {
+        return settings.getSnapToTrail();
+    }
+
+    /**
+     * Gets whether the performance overlay is shown.
+     *
+     * @return true if shown
+     */
+    public boolean isDebugOverlay() {
+        return settings.isDebugOverlay();
+    }
+
+    /**
+     * Gets whether the UI is in night mode.
+     *
+     * @return true if in night mode
+     */
+    public boolean isNightMode() {
+        return isNightMode;
+    }
+
+    /**
+     * Gets the width of the surface.
+     *
+     * @return width, in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the surface.
+     *
+     * @return height, in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the horizontal coordinate of the touch point.
+     *
+     * @return coordinate, or NO_TOUCH
+     */
+    public int getTouchX() {
+        return touchX;
+    }
+
+    /**
+     * Gets the vertical coordinate of the touch point.
+     *
+     * @return coordinate, or NO_TOUCH
+     */
+    public int getTouchY() {
+        return touchY;
+    }
+
+    /**
+     * Gets whether the touch point follows a finger scrubbing across the profile.
+     *
+     * @return true while scrubbing
+     */
+    public boolean isScrubbing() {
+        return isScrubbing;
+    }
+
+    /**
+     * Gets the version of the touch point, which changes with each touch (even one at the same
+     * coordinates), so a touched Node's details are shown once per touch, however many frames
+     * are drawn with it.
+     *
+     * @return the version
+     */
+    public int getTouchVersion() {
+        return touchVersion;
+    }
+
+    /**
+     * Returns whether this request draws the same profile (i.e., everything but the touch
+     * feedback) as another, that is, whether it was derived from the other by changing only
+     * the touch point.
+     *
+     * @param other a request from the same GraphView, or null
+     * @return true if the other's profile may be reused
+     */
+    public boolean isSameBase(FrameRequest other) {
+        return other != null && baseVersion == other.baseVersion;
+    }
+
+    /**
+     * Returns whether this request draws the same frame as another: the same profile, at the
+     * same view, with the same touch feedback.  Such a request need not be drawn again.
+     *
+     * @param other a request from the same GraphView, or null
+     * @return true if the other's frame may be kept
+     */
+    public boolean isSameFrame(FrameRequest other) {
+        return isSameBase(other)
+                && touchX == other.touchX
+                && touchY == other.touchY
+                && isScrubbing == other.isScrubbing
+                && touchVersion == other.touchVersion
+                && getZoomDist() == other.getZoomDist()
+                && getVertBias() == other.getVertBias();
+    }
+
+    /**
+     * Returns whether the touch point is within the surface.
+     *
+     * @return true if there is a touch point to display
+     */
+    public boolean hasTouchPoint() {
+        return touchX <= width && touchY <= height;
+    }
+}
@@ -20,17 +20,12 @@ import androidx.annotation.NonNull;
 
 import android.util.Log;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.io.Serializable;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The Graph class contains the Nodes and Edges, along with other summary details for a
@@ -42,6 +37,30 @@ import java.util.concurrent.atomic.AtomicReference;
 public class Graph implements Serializable {
 
     public static final String DEBUG_TAG = "name.jdstew.uphillahead.Graph";
+    /**
+     * Index of the cumulative distance, including elevation change, see getCumulativeValues()
+     */
+    public static final int CUMULATIVE_DIST = 0;
+    /**
+     * Index of the cumulative hours, hiking to the end, see getCumulativeValues()
+     */
+    public static final int CUMULATIVE_HOURS_TO_END = 1;
+    /**
+     * Index of the cumulative hours, hiking to the start, see getCumulativeValues()
+     */
+    public static final int CUMULATIVE_HOURS_TO_START = 2;
+    /**
+     * Index of the cumulative elevation gain, hiking to the end, see getCumulativeValues()
+     */
+    public static final int CUMULATIVE_GAIN = 3;
+    /**
+     * Index of the cumulative elevation loss (negative), hiking to the end, see getCumulativeValues()
+     */
+    public static final int CUMULATIVE_LOSS = 4;
+    /**
+     * Number of cumulative values, see getCumulativeValues()
+     */
+    public static final int CUMULATIVE_COUNT = 5;
     private static final long serialVersionUID = 5323932677215095043L;
     private double maxLatitude;
     private double minLatitude;
@@ -54,6 +73,39 @@ public class Graph implements Serializable {
     private String startDescription = null;
     private String endDescription = null;
 
+    // derived columns, indexed the same as nodes, and rebuilt by buildColumns() after loading
+    private transient LocalProjection projection;
+    private transient float[] xs; // meters east of the projection's origin
+    private transient float[] ys; // meters north of the projection's origin
+    private transient double[] dists; // horizontal meters from the first Node, along the Edges
+    private transient double[] totalDists; // meters, including elevation change, see Edge.getDistance()
+    private transient double[] gains; // meters of elevation gained from the first Node, hiking to the end
+    private transient double[] losses; // meters of elevation lost (negative), likewise
+    private transient int[][] poiIndices; // indices of the Nodes of each PoiType, in order
+    private transient long fingerprint; // of the Nodes' positions, see getFingerprint()
+    private transient volatile ProfileOverview overview; // built on first use, see getOverview()
+    private transient volatile TimeColumns timeColumns; // rebuilt by buildTimeColumns() when the pace model changes
+
+    /**
+     * Cumulative hiking times, in hours and without the user's pace bias, indexed the same as
+     * nodes, and the difficulty bands of each direction, which depend on the same paces.
+     * Replaced as a whole, so that a reader never sees a partially built column.
+     */
+    private static final class TimeColumns {
+        private final double[] toEnd; // hours from the first Node to Node i, hiking to the end
+        private final double[] toStart; // hours from Node i to the first Node, hiking to the start
+        private final DifficultyBands bandsToEnd;
+        private final DifficultyBands bandsToStart;
+
+        private TimeColumns(double[] toEnd, double[] toStart,
+                            DifficultyBands bandsToEnd, DifficultyBands bandsToStart) {
+            this.toEnd = toEnd;
+            this.toStart = toStart;
+            this.bandsToEnd = bandsToEnd;
+            this.bandsToStart = bandsToStart;
+        }
+    }
+
     /**
      * Default constructor
      */
@@ -83,6 +135,327 @@ public class Graph implements Serializable {
         });
     }
 
+    /**
+     * Builds the transient columns derived from the Nodes, which are not serialized with the
+     * Graph.  This should be called once after the Graph is deserialized (and its Edges
+     * relinked), so that location matching does not repeat this work.
+     *
+     * Nodes are projected into a local, flat frame centered on the Graph's extents, allowing
+     * nearest Node and cross-track distances to be computed with float arithmetic, see the
+     * LocalProjection class for the error budget compared to geodesic distances.
+     *
+     * Each Node's waypoint is classified here, once, as a type of point of interest (see the
+     * PoiType class), so that drawing it is an array read rather than string matching.
+     */
+    public void buildColumns() {
+        projection = LocalProjection.getCenteredOn(this);
+
+        int count = nodes.size();
+        float[] xy = new float[2];
+        xs = new float[count];
+        ys = new float[count];
+        dists = new double[count];
+        totalDists = new double[count];
+        gains = new double[count];
+        losses = new double[count];
+        int[] poiCounts = new int[PoiType.COUNT];
+        long hash = count;
+        for (int i = 0; i < count; ++i) {
+            Node n = nodes.get(i);
+            n.setIndex(i);
+            hash = 31L * hash + Double.doubleToLongBits(n.getLatitude());
+            hash = 31L * hash + Double.doubleToLongBits(n.getLongitude());
+            hash = 31L * hash + Double.doubleToLongBits(n.getElevation());
+            byte poiType = PoiType.classify(n.getName(), n.getDescription(), n.getSymbol());
+            n.setPoiType(poiType);
+            ++poiCounts[poiType];
+            projection.project(n, xy, 0);
+            xs[i] = xy[0];
+            ys[i] = xy[1];
+            if (i > 0) {
+                Edge e = n.getPrevEdge();
+                dists[i] = dists[i - 1] + e.getHorizontalDistance();
+                totalDists[i] = totalDists[i - 1] + e.getDistance();
+                gains[i] = gains[i - 1] + Math.max(e.getVerticalDistance(), 0.0);
+                losses[i] = losses[i - 1] + Math.min(e.getVerticalDistance(), 0.0);
+            }
+        }
+
+        int[][] indices = new int[PoiType.COUNT][];
+        for (int type = 0; type < PoiType.COUNT; ++type) {
+            indices[type] = new int[poiCounts[type]];
+            poiCounts[type] = 0;
+        }
+        for (int i = 0; i < count; ++i) {
+            int type = nodes.get(i).getPoiType();
+            indices[type][poiCounts[type]++] = i;
+        }
+        poiIndices = indices;
+        fingerprint = hash;
+        overview = null; // of the Nodes before
+    }
+
+    /**
+     * Returns the Nodes of a type of point of interest, e.g., for a list of water sources only,
+     * without classifying or filtering the Nodes again.
+     *
+     * @param poiType see the PoiType class
+     * @return indices of the Nodes, in order from the first Node, which must not be modified
+     */
+    public int[] getPoiIndices(byte poiType) {
+        if (poiIndices == null) {
+            buildColumns();
+        }
+        return poiIndices[poiType];
+    }
+
+    /**
+     * Builds the cumulative hiking times of the Graph, in both directions, with the PaceTable
+     * provided.  Each Edge's slope is taken in the direction of travel (i.e., negated when
+     * hiking to the start) and its pace at the elevation of the Node where it is entered.  The
+     * difficulty bands of each direction are built from the same paces.
+     *
+     * This may be called from a background thread; the new times are published at once.
+     *
+     * @param table the PaceTable of the selected pace model
+     */
+    public void buildTimeColumns(PaceTable table) {
+        if (dists == null) {
+            buildColumns();
+        }
+
+        int count = nodes.size();
+        double[] toEnd = new double[count];
+        double[] toStart = new double[count];
+        double[] pacesToEnd = new double[Math.max(count - 1, 0)];
+        double[] pacesToStart = new double[pacesToEnd.length];
+        for (int i = 1; i < count; ++i) {
+            Node prevNode = nodes.get(i - 1);
+            Edge e = prevNode.getNextEdge();
+            double km = e.getDistance() / 1_000.0;
+            pacesToEnd[i - 1] = table.getPace(e.getSlope(), prevNode.getElevation());
+            pacesToStart[i - 1] = table.getPace(-e.getSlope(), nodes.get(i).getElevation());
+            toEnd[i] = toEnd[i - 1] + km / pacesToEnd[i - 1]; // t = d/s
+            toStart[i] = toStart[i - 1] + km / pacesToStart[i - 1];
+        }
+        timeColumns = new TimeColumns(toEnd, toStart,
+                new DifficultyBands(dists, pacesToEnd), new DifficultyBands(dists, pacesToStart));
+    }
+
+    /**
+     * Returns a hash of the positions and elevations of the Nodes, so that a cache of the
+     * Graph's drawings (e.g., the ProfileTileCache's files) is not reused for an edited Graph
+     * of the same name and size.
+     *
+     * @return the hash, built with the columns
+     */
+    public long getFingerprint() {
+        if (dists == null) {
+            buildColumns();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns the cumulative hours of a Node, from the first Node, without the user's pace
+     * bias, building the times with the current PaceTable if they have not yet been built.
+     *
+     * @param index of the Node
+     * @param toEnd the direction, true for from start-to-end manner
+     * @return hours, see CUMULATIVE_HOURS_TO_END and CUMULATIVE_HOURS_TO_START
+     */
+    public double getHours(int index, boolean toEnd) {
+        TimeColumns tc = timeColumns;
+        if (tc == null) {
+            buildTimeColumns(PaceTable.getCurrent());
+            tc = timeColumns;
+        }
+        return toEnd ? tc.toEnd[index] : tc.toStart[index];
+    }
+
+    /**
+     * Returns the difficulty bands of the Graph, for a direction of travel, building them with
+     * the current PaceTable if they have not yet been built.
+     *
+     * @param toEnd the direction, true for from start-to-end manner
+     * @return runs of Edges of the same difficulty
+     */
+    public DifficultyBands getDifficultyBands(boolean toEnd) {
+        TimeColumns tc = timeColumns;
+        if (tc == null) {
+            buildTimeColumns(PaceTable.getCurrent());
+            tc = timeColumns;
+        }
+        return toEnd ? tc.bandsToEnd : tc.bandsToStart;
+    }
+
+    /**
+     * Interpolates the cumulative values of the Graph at a horizontal distance along it, from
+     * the first Node, by binary search of the cumulative distances and the fraction of the Edge
+     * at the distance.  So, the values between any two points (e.g., the observer and a touch
+     * point) are their difference, found in O(log n) rather than by walking the Edges.
+     *
+     * @param dist horizontal distance from the first Node, in meters, within the Graph
+     * @param values receives the values, indexed by CUMULATIVE_DIST, CUMULATIVE_HOURS_TO_END,
+     *               CUMULATIVE_HOURS_TO_START, CUMULATIVE_GAIN and CUMULATIVE_LOSS; hours are
+     *               without the user's pace bias
+     */
+    public void getCumulativeValues(double dist, double[] values) {
+        if (dists == null) {
+            buildColumns();
+        }
+        TimeColumns tc = timeColumns;
+        if (tc == null) {
+            buildTimeColumns(PaceTable.getCurrent());
+            tc = timeColumns;
+        }
+
+        int next = Math.min(Math.max(getFirstNodeIndexAfter(dist, true), 1), dists.length - 1);
+        int prev = Math.max(next - 1, 0);
+        double span = dists[next] - dists[prev];
+        double fraction = span > 0.0 ? Math.max(0.0, Math.min(1.0, (dist - dists[prev]) / span)) : 0.0;
+        values[CUMULATIVE_DIST] = interpolate(totalDists, prev, next, fraction);
+        values[CUMULATIVE_HOURS_TO_END] = interpolate(tc.toEnd, prev, next, fraction);
+        values[CUMULATIVE_HOURS_TO_START] = interpolate(tc.toStart, prev, next, fraction);
+        values[CUMULATIVE_GAIN] = interpolate(gains, prev, next, fraction);
+        values[CUMULATIVE_LOSS] = interpolate(losses, prev, next, fraction);
+    }
+
+    private static double interpolate(double[] column, int prev, int next, double fraction) {
+        return column[prev] + (column[next] - column[prev]) * fraction;
+    }
+
+    /**
+     * Returns the horizontal distance of a Node entered into the Graph (see setEntryEdge), from
+     * the first Node, along the Edges.
+     *
+     * @param node the entered Node, e.g., the observer
+     * @param toEnd the direction, true for from start-to-end manner
+     * @return distance, in meters, or NaN if the Node has no Edge in the direction of travel
+     */
+    public double getEntryDistance(Node node, boolean toEnd) {
+        if (toEnd) {
+            Edge e = node.getNextEdge();
+            return e == null ? Double.NaN : dists[e.getNextNode().getIndex()] - e.getHorizontalDistance();
+        } else {
+            Edge e = node.getPrevEdge();
+            return e == null ? Double.NaN : dists[e.getPrevNode().getIndex()] + e.getHorizontalDistance();
+        }
+    }
+
+    /**
+     * Resolves the Nodes spanning a window of horizontal distance along the Graph, by binary
+     * search of the cumulative distances rather than by walking the Edges, so that any window
+     * (e.g., one looking ahead of the observer) is found in O(log n).
+     *
+     * @param startDist start of the window, from the first Node, in meters
+     * @param endDist end of the window, from the first Node, in meters
+     * @param range receives the index of the last Node at or before the start, and of the first
+     *              Node at or after the end, each within the Graph
+     */
+    public void getViewport(double startDist, double endDist, int[] range) {
+        if (dists == null) {
+            buildColumns();
+        }
+
+        range[0] = Math.max(getFirstNodeIndexAfter(startDist, false) - 1, 0);
+        range[1] = Math.min(getFirstNodeIndexAfter(endDist, true), dists.length - 1);
+    }
+
+    /**
+     * Returns the index of the first Node beyond a distance, by binary search.
+     *
+     * @param dist from the first Node, in meters
+     * @param isInclusive true to include a Node at the distance
+     * @return index of the Node, or the number of Nodes if there is none
+     */
+    private int getFirstNodeIndexAfter(double dist, boolean isInclusive) {
+        int low = 0;
+        int high = dists.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dists[mid] < dist || (!isInclusive && dists[mid] == dist)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of Nodes of the Graph.
+     *
+     * @return number of Nodes
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns the horizontal distance of a Node from the first Node, along the Edges.
+     *
+     * @param index within the Graph's Nodes, e.g., from getViewport()
+     * @return distance, in meters
+     */
+    public double getDistance(int index) {
+        if (dists == null) {
+            buildColumns();
+        }
+        return dists[index];
+    }
+
+    /**
+     * Gets the coarse overview of the whole Graph's profile, which is built on first use.
+     *
+     * @return the overview, see Config.OVERVIEW_BUCKETS
+     */
+    ProfileOverview getOverview() {
+        ProfileOverview o = overview;
+        if (o == null) {
+            if (dists == null) {
+                buildColumns();
+            }
+            o = new ProfileOverview(this, Config.OVERVIEW_BUCKETS);
+            overview = o;
+        }
+        return o;
+    }
+
+    /**
+     * Returns a Node of the Graph.
+     *
+     * @param index within the Graph's Nodes, e.g., from getViewport()
+     * @return the Node
+     */
+    public Node getNode(int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * Returns the index of the closest Node, measured within the Graph's projected frame.
+     *
+     * @param x east value, in meters
+     * @param y north value, in meters
+     * @return index of closest Node
+     */
+    private int getClosestNodeIndex(float x, float y) {
+        int closestNodeIndex = -1;
+        float closestNodeDistSq = Float.MAX_VALUE;
+
+        for (int i = 0; i < xs.length; ++i) {
+            float dx = xs[i] - x;
+            float dy = ys[i] - y;
+            float dSq = dx * dx + dy * dy;
+            if (dSq < closestNodeDistSq) {
+                closestNodeDistSq = dSq;
+                closestNodeIndex = i;
+            }
+        }
+
+        return closestNodeIndex;
+    }
+
     /**
      * Adds String name values to the first and last Nodes for a graph, delineating the
      * start and end of a route (trail).
@@ -464,19 +837,17 @@ public class Graph implements Serializable {
      * the distance to the closest node will be returned.
      */
     public double setEntryEdge(Node node, boolean toEnd) {
-
-        int closestNodeIndex = -1;
-        double closestNodeDist = Double.MAX_VALUE;
-        Node closestNode = null;
-        for (int i = 0; i < nodes.size(); ++i) {
-            Node n = nodes.get(i);
-            double d = Calcs.getDistance(n.getLatitude(), n.getLongitude(), node.getLatitude(), node.getLongitude(), false);
-            if (d < closestNodeDist) {
-                closestNodeIndex = i;
-                closestNodeDist = d;
-                closestNode = n;
-            }
+        if (xs == null) {
+            buildColumns();
         }
+
+        float[] obs = new float[2];
+        projection.project(node, obs, 0);
+
+        int closestNodeIndex = getClosestNodeIndex(obs[0], obs[1]);
+        Node closestNode = nodes.get(closestNodeIndex);
+        double closestNodeDist = Math.sqrt((xs[closestNodeIndex] - obs[0]) * (xs[closestNodeIndex] - obs[0])
+                + (ys[closestNodeIndex] - obs[1]) * (ys[closestNodeIndex] - obs[1]));
         Log.i(DEBUG_TAG,"closest node is " + closestNode + " at " + closestNodeDist + " meters away");
 
         // "level" the elevation of the node to closest node (typically for simulated locations)
@@ -520,7 +891,8 @@ public class Graph implements Serializable {
             Edge nextEdge = closestNode.getNextEdge();
             if (nextEdge != null) {
                 node.setNextEdge(new Edge(node, nextEdge.getNextNode()));
-                return Calcs.getCrossTrackDist(node, nextEdge);
+                return Calcs.getPlanarCrossTrackDist(xs[closestNodeIndex], ys[closestNodeIndex],
+                        xs[closestNodeIndex + 1], ys[closestNodeIndex + 1], obs[0], obs[1]);
             } else { // node is beyond the last node
                 node.setPrevEdge(new Edge(closestNode, node));
                 return closestNodeDist;
@@ -529,7 +901,8 @@ public class Graph implements Serializable {
             Edge prevEdge = closestNode.getPrevEdge();
             if (prevEdge != null) {
                 node.setPrevEdge(new Edge(prevEdge.getPrevNode(), node));
-                return Calcs.getCrossTrackDist(node, prevEdge);
+                return Calcs.getPlanarCrossTrackDist(xs[closestNodeIndex - 1], ys[closestNodeIndex - 1],
+                        xs[closestNodeIndex], ys[closestNodeIndex], obs[0], obs[1]);
             } else { // node is prior to the first node
                 node.setNextEdge(new Edge(node, closestNode));
                 return closestNodeDist;
@@ -555,74 +928,6 @@ public class Graph implements Serializable {
         return sb.toString();
     }
 
-    /**
-     * Creates an HTML-ready XML content to display a Graph as a web page.
-     *
-     * @param pathName for the file to create
-     * @param width pixel count for the displayed output
-     * @param height pixel count for th displayed output
-     */
-    public void renderHTML(File pathName, int width, int height) {
-        // determine hDist of Graph
-        AtomicReference<Double> hDistTotal = new AtomicReference<>(0.0);
-        edges.forEach(e -> hDistTotal.set(hDistTotal.get() + e.getHorizontalDistance()));
-
-        double hScale = (double) width / hDistTotal.get();
-        double vScale = hScale * Config.EXAGGERATION_DEFAULT;
-
-        double x = 0.0;
-        double y = height / 2.0;
-
-        try (FileWriter fw = new FileWriter(pathName, false); // clobber existing file
-             BufferedWriter bw = new BufferedWriter(fw)) {
-
-            bw.write("<!DOCTYPE html>");
-            bw.newLine();
-            bw.write("<html>");
-            bw.newLine();
-            bw.write("<body>");
-            bw.newLine();
-            bw.write("<canvas id='myCanvas' width='" + width + "' height='" + height
-                    + "' style='border:1px solid #d3d3d3;'/>");
-            bw.newLine();
-            bw.write("<script>");
-            bw.newLine();
-            bw.write("var c = document.getElementById('myCanvas');");
-            bw.newLine();
-            bw.write("var ctx = c.getContext('2d');");
-            bw.newLine();
-            bw.write("ctx.strokeStyle = 'red';");
-            bw.newLine();
-            bw.write("ctx.beginPath();");
-            bw.newLine();
-            bw.write("ctx.moveTo(" + x + ", " + y + ");");
-
-            for (int i = 0; i < nodes.size(); ++i) {
-                Edge e = nodes.get(i).getNextEdge();
-
-                if (e != null) {
-                    x += e.getHorizontalDistance() * hScale;
-                    y += e.getVerticalDistance() * vScale;
-
-                    bw.write("ctx.lineTo(" + (int) x + ", " + (int) y + ");");
-                    bw.newLine();
-                }
-            }
-
-            bw.write("ctx.stroke();");
-            bw.newLine();
-            bw.write("</script> ");
-            bw.newLine();
-            bw.write("</body>");
-            bw.newLine();
-            bw.write("</html>");
-//            System.out.println("Completed writing " + pathName);
-
-        } catch (IOException ioException) {
-//            System.out.println(ioException);
-        }
-    }
-
     @NonNull
     @Override
     public String toString() {
@@ -16,13 +16,10 @@
  */
 package name.jdstew.uphillahead;
 
-import android.content.SharedPreferences;
 import android.util.Log;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 
-import androidx.preference.PreferenceManager;
-
 
 /**
  * The GraphGestureDetector class is a custom implementation of the SimpleOnGestureListener for
@@ -34,13 +31,11 @@ import androidx.preference.PreferenceManager;
 public class GraphGestureDetector extends GestureDetector.SimpleOnGestureListener {
 
     private static final String DEBUG_TAG = "name.jdstew.uphillahead.GraphGestureListener";
-    /**
-     * Default fling gesture for zooming and biasing the graph display
-     */
-    public static final double DEFAULT_FLING_PERCENT = 0.3333;
 
     private final GraphView graphView;
-    private final SharedPreferences prefs;
+    private boolean isScrolling; // from the first onScroll() until the next onDown()
+    private double scrollStartZoomDist;
+    private double scrollStartVertBias;
 
     /**
      * Constructor for the implementaion of the SimpleOnGestureListener
@@ -49,11 +44,11 @@ public class GraphGestureDetector extends GestureDetector.SimpleOnGestureListene
      */
     public GraphGestureDetector(GraphView view) {
         graphView = view;
-        prefs = PreferenceManager.getDefaultSharedPreferences(view.getContext());
     }
 
     @Override
     public boolean onDown(MotionEvent event) {
+        isScrolling = false;
         // do not delete this method, returning true
         // is required for all other functionality
         return true;
@@ -68,13 +63,27 @@ public class GraphGestureDetector extends GestureDetector.SimpleOnGestureListene
         // NOTE: only the first 'finger' will be used
         int xRelative = (int)event.getRawX() - viewCoordinates[0];
         int yRelative = (int)event.getRawY() - viewCoordinates[1];
-        graphView.touchPoint.set(xRelative, yRelative);
-
-//        Log.d(DEBUG_TAG, "single-tap triggered invalidate()");
-        graphView.postInvalidate ();
+//        Log.d(DEBUG_TAG, "single-tap triggered requestFrame()");
+        graphView.setTouchPoint(xRelative, yRelative);
         return true; // meaning, this listener handled it!
     }
 
+    /**
+     * A long-press starts scrubbing: the touch line, with its readout, then follows the finger
+     * until it is lifted (see GraphView.startScrub()), since a drag otherwise pans and zooms.
+     */
+    @Override
+    public void onLongPress(MotionEvent event) {
+
+        int[] viewCoordinates = new int [2];
+        graphView.getLocationOnScreen(viewCoordinates);
+
+        // NOTE: only the first 'finger' will be used
+        int xRelative = (int)event.getRawX() - viewCoordinates[0];
+        int yRelative = (int)event.getRawY() - viewCoordinates[1];
+        graphView.startScrub(xRelative, yRelative);
+    }
+
 /*
     /**
      * If a long-press is on a Node, then open the Node's detailed Activity display,
@@ -98,91 +107,45 @@ public class GraphGestureDetector extends GestureDetector.SimpleOnGestureListene
         graphView.postInvalidate ();
     }
  */
-/*
     /**
-     * For a scrolling gesture:
+     * For a scrolling gesture, the view follows the finger at the display's refresh rate:
      * 0. Set the tapPoint to null
-     * 1. Calculate the dx/dy of the scroll as a percentage of the view width/height
-     * 2. Zoom in/out (finger left/right) on trail relative to existing zoom level
-     * 	Example: scrolling 50% of screen to left at 1000 meters zoom should zoom out
-     * 	to 2000 meters (currentZoom * (1 + right%)).  Scrolling 66% of the screen to
-     * 	the right at 1000 meters should zoom-in to 333 meters
-     * 	(currentZoom * (1 - left%)).
-     * 3. Bias up/down (finger up/down) is added to the existing bias, not exceeding the
-     * 	bias min/max.
+     * 1. Calculate the dx/dy of the scroll (from where the finger went down) as a percentage of
+     * 	the view width/height
+     * 2. Zoom in/out (finger right/left) on trail relative to the zoom level when the gesture
+     * 	began, doubling for each half of the view width.
+     * 	Example: scrolling 50% of screen to left at 1000 meters zooms out to 2000 meters.
+     * 	Scrolling 50% of the screen to the right at 1000 meters zooms in to 500 meters.
+     * 3. Bias up/down (finger up/down) is added to the bias when the gesture began, not
+     * 	exceeding the bias min/max.
      * 	Example: scrolling 50% of screen from 0.0 bias up moves the bias to -0.5.
-     * 	Scrolling 60% of the screen from 0.4 bias down moves te bias to 0.9 (limit of bias)
-     * 4. set new preference values
-     * 5. invalidate
-
-
+     * 4. set the gesture's view, which only transforms the profile already drawn (see
+     * 	GraphView.setGestureView()), and is written to the preferences when the gesture ends
+     *
+     * A fling is not handled on its own: it follows a scroll, as the finger leaves the touch
+     * slop first, and so ends as the scroll does, with the view where the finger is lifted.
+     */
     @Override
     public boolean onScroll(MotionEvent event1, MotionEvent event2, float distanceX, float distanceY) {
-
-        SharedPreferences.Editor prefsEditor = prefs.edit();
+        if (!isScrolling) {
+            GraphSettings settings = graphView.getSettings();
+            scrollStartZoomDist = settings.getZoomDist();
+            scrollStartVertBias = settings.getVertBias();
+            isScrolling = true;
+        }
 
         // calculate change in horizontal zoom
-        double xPercentDelta = (double)((event1.getRawX() - event2.getRawX()) / graphView.getWidth());
-        double zoomDist = Double.parseDouble(prefs.getString("zoom_pref_key", Double.toString(Config.ZOOM_DEFAULT)));
-        zoomDist = zoomDist + (xPercentDelta)* zoomDist * 0.1;
-        Log.d(DEBUG_TAG, "new zoom distance is " + zoomDist);
+        double xPercentDelta = (double)((event2.getRawX() - event1.getRawX()) / graphView.getWidth());
+        double zoomDist = scrollStartZoomDist * Math.pow(2.0, -2.0 * xPercentDelta);
         zoomDist = Math.max(Config.ZOOM_MIN, Math.min(Config.ZOOM_MAX, zoomDist));
 
-        prefsEditor.putString("zoom_pref_key", Double.toString(zoomDist));
-
         // calculate change in vertical bias
-        double yPercentDelta = (double)((event1.getRawY() - event2.getRawY()) / graphView.getHeight());
-        double vertBias = Double.parseDouble(prefs.getString("vertical_bias_pref_key", Double.toString(Config.VERTICAL_BIAS_DEFAULT)));
-        vertBias += yPercentDelta;
-        vertBias = Math.min(Config.VERTICAL_BIAS_MIN, Math.max(Config.VERTICAL_BIAS_MAX, vertBias));
-        prefsEditor.putString("vertical_bias_pref_key", Double.toString(vertBias));
-
-        prefsEditor.apply();
+        double yPercentDelta = (double)((event2.getRawY() - event1.getRawY()) / graphView.getHeight());
+        double vertBias = scrollStartVertBias + yPercentDelta;
+        vertBias = Math.max(Config.VERTICAL_BIAS_MIN, Math.min(Config.VERTICAL_BIAS_MAX, vertBias));
 
-        graphView.touchPoint.set(Integer.MAX_VALUE, Integer.MAX_VALUE); // so that a callout is not displayed
-        Log.d(DEBUG_TAG, "scrolled " + xPercentDelta + "% horizontally; " + yPercentDelta + "% vertically");
-        //graphView.invalidate();
-        return true; // meaning, this listener handled it!
-    }
-*/
-    /**
-     * For a fling gesture this method will convert it into a psuedo-scroll action.
-     * The resultant change will only be up/down or left/right, but not both
-     * 1. Calculate the sign (pos/neg) for the dx/dy of the gesture
-     * 2. If Abs(dx) > Abs(dy), then adjust the currentZoom (currentZoom * (1 + DEFAULT_FLING_PERCENT))
-     * 	or (currentZoom * (1 - DEFAULT_FLING_PERCENT)) based upon the sign of dx
-     * 3. If Abs(dx) < Abs(dy), then adjust the bias by DEFAULT_FLING_PERCENT = 0.3333
-     * 	based upon the sign of dy, within the min/max of bias
-     * 4. set new preference value
-     * 5. invalidate
-     */
-    @Override
-    public boolean onFling(MotionEvent event1, MotionEvent event2, float velocityX, float velocityY) {
-
-        float dx = event2.getRawX() - event1.getRawX();
-        float dy = event2.getRawY() - event1.getRawY();
-
-        SharedPreferences.Editor prefsEditor = prefs.edit();
-
-            double zoomDist = Double.parseDouble(prefs.getString("zoom_pref_key", Double.toString(Config.ZOOM_DEFAULT)));
-            if (dx <= 0) {
-                zoomDist += zoomDist * DEFAULT_FLING_PERCENT; // left fling zooms out
-            } else {
-                zoomDist -= zoomDist * DEFAULT_FLING_PERCENT; // right fling zooms in
-            }
-            zoomDist = Math.max(Config.ZOOM_MIN, Math.min(Config.ZOOM_MAX, zoomDist));
-            prefsEditor.putString("zoom_pref_key", Double.toString(zoomDist));
-
-            double vertBias = Double.parseDouble(prefs.getString("vertical_bias_pref_key", Double.toString(Config.VERTICAL_BIAS_DEFAULT)));
-            vertBias += dy / graphView.getHeight();// * DEFAULT_FLING_PERCENT; // up fling moves graph up
-            vertBias = Math.max(Config.VERTICAL_BIAS_MIN, Math.min(Config.VERTICAL_BIAS_MAX, vertBias));
-            prefsEditor.putString("vertical_bias_pref_key", Double.toString(vertBias));
-
-        prefsEditor.apply();
-
-        graphView.touchPoint.set(Integer.MAX_VALUE, Integer.MAX_VALUE); // so that a callout is not displayed
-//        Log.d(DEBUG_TAG, "fling triggered invalidate()");
-        graphView.postInvalidate ();
+//        Log.d(DEBUG_TAG, "scrolled " + xPercentDelta + "% horizontally; " + yPercentDelta + "% vertically");
+        graphView.setGestureView(zoomDist, vertBias); // which also clears the touch point
         return true; // meaning, this listener handled it!
     }
 }
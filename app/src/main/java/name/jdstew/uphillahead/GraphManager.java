@@ -35,6 +35,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -55,15 +58,18 @@ public final class GraphManager implements Serializable {
     private static final String SERIALIZED_FILE_TYPE = ".ser";
 
     private static GraphManager gm;
+    private static final ExecutorService etaExecutor = Executors.newSingleThreadExecutor();
     private transient Context c;
 
+    // read by the render thread and previews while changed on the main thread, so iterated
+    // over a snapshot; loads and changes are synchronized, so a Graph is loaded only once
     private transient List<Graph> graphs;
 
     // String: name, String: hashcode
     private final Map<String, String> graphMap;
 
     private GraphManager() {
-        graphs = new ArrayList<>();
+        graphs = new CopyOnWriteArrayList<>();
         graphMap = new HashMap<>();
     }
 
@@ -82,7 +88,7 @@ public final class GraphManager implements Serializable {
             objectInputStream.close();
             long finishTime = System.currentTimeMillis();
 //            System.out.println("GraphManager loading took " + (finishTime - startTime) + " milliseconds");
-            gm.graphs = new ArrayList<>();
+            gm.graphs = new CopyOnWriteArrayList<>();
         }
         catch (ClassNotFoundException cnfe) {
 //            System.out.println(cnfe);
@@ -113,7 +119,7 @@ public final class GraphManager implements Serializable {
             objectInputStream.close();
             long finishTime = System.currentTimeMillis();
 //            Log.d(DEBUG_TAG, "GraphManager loading took " + (finishTime - startTime) + " milliseconds");
-            gm.graphs = new ArrayList<>();
+            gm.graphs = new CopyOnWriteArrayList<>();
             // assetManager.close();
         }
         catch (ClassNotFoundException cnfe) {
@@ -130,7 +136,7 @@ public final class GraphManager implements Serializable {
         return gm;
     }
 
-    public List<String> getGraphNameList() {
+    public synchronized List<String> getGraphNameList() {
         List<String> list = new ArrayList<>(graphMap.keySet());
         Collections.sort(list);
         return list;
@@ -166,17 +172,17 @@ public final class GraphManager implements Serializable {
         return nodeInGraph.get();
     }
 
-    public void addGraph(Graph g) {
+    public synchronized void addGraph(Graph g) {
         graphs.add(g);
         graphMap.put(g.getName(), Integer.toString(g.hashCode()));
     }
 
-    public void removeGraph(Graph g) {
+    public synchronized void removeGraph(Graph g) {
         graphs.remove(g);
         graphMap.remove(g.getName());
     }
 
-    public Graph getGraph(String graphName) {
+    public synchronized Graph getGraph(String graphName) {
         for (Graph g : graphs) {
             if (g.getName().compareTo(graphName) == 0) {
                 return g;
@@ -197,15 +203,19 @@ public final class GraphManager implements Serializable {
 //        Log.d(DEBUG_TAG, "Graph file to load is " + fileName);
 
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
         Graph g = null;
         AssetManager assetManager = c.getAssets();
         try (InputStream inputStream = assetManager.open(fileName, AssetManager.ACCESS_BUFFER);
              ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
             g = (Graph) objectInputStream.readObject();
             g.relinkEdges();
+            g.buildColumns();
+            g.buildTimeColumns(PaceTable.getCurrent());
             GraphManager.getInstance(c).addGraph(g);
             objectInputStream.close();
             long finishTime = System.currentTimeMillis();
+            Instrumentation.LOAD_TIME.record(System.nanoTime() - startNanos);
 //            Log.d(DEBUG_TAG, "Graph loading took " + (finishTime - startTime) + " milliseconds");
         }
         catch (ClassNotFoundException | IOException cnfe) {
@@ -232,6 +242,25 @@ public final class GraphManager implements Serializable {
         }
     }
 
+    /**
+     * Recomputes the hiking times of every loaded Graph with the current PaceTable, in a single
+     * batch pass on a background thread (e.g., after the user selects another pace model).
+     * Graphs loaded later build their times as they are loaded.
+     *
+     * @param onRecomputed run on the background thread once the times are recomputed
+     */
+    public void recomputeEtas(Runnable onRecomputed) {
+        List<Graph> loadedGraphs = new ArrayList<>(graphs);
+        etaExecutor.execute(() -> {
+            long startTime = System.currentTimeMillis();
+            PaceTable table = PaceTable.getCurrent();
+            loadedGraphs.forEach(g -> g.buildTimeColumns(table));
+            long finishTime = System.currentTimeMillis();
+//            Log.d(DEBUG_TAG, "ETAs of " + loadedGraphs.size() + " graphs took " + (finishTime - startTime) + " milliseconds");
+            onRecomputed.run();
+        });
+    }
+
     public void clearGraphs() {
         graphs.clear();
     }
@@ -250,6 +279,7 @@ public final class GraphManager implements Serializable {
                      ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream)) {
                     Graph g = (Graph) objectInputStream.readObject();
                     g.relinkEdges();
+                    g.buildColumns();
                     GraphManager.getInstance(c).addGraph(g);
                     objectInputStream.close();
                     long finishTime = System.currentTimeMillis();
@@ -281,8 +311,18 @@ public final class GraphManager implements Serializable {
         });
     }
 
-    public void exportHTML(String folder) {
-        graphs.forEach(g -> g.renderHTML(new File (folder + g.getName() + ".html"), 1800, 800));
+    /**
+     * Exports the profile of every Graph loaded, as SVG and PNG files, in parallel (see the
+     * ProfileExporter class).
+     *
+     * @param folder an existing folder to write the files into
+     * @return number of Graphs exported
+     * @throws IOException naming the Graphs that could not be exported, see
+     *                     ProfileExporter.exportAll()
+     */
+    public int exportProfiles(String folder) throws IOException {
+        ProfileExporter exporter = new ProfileExporter(Config.EXPORT_WIDTH, Config.EXPORT_HEIGHT, Config.EXAGGERATION_DEFAULT);
+        return exporter.exportAll(graphs, new File(folder));
     }
 
     @NonNull
@@ -0,0 +1,311 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.text.TextPaint;
+import android.util.DisplayMetrics;
+
+/**
+ * The GraphPaints class holds the Paint objects, colors and pixel dimensions used to draw the
+ * GraphView, for one theme (day or night mode) and display density.  They are built once, when
+ * the theme or density changes, rather than on every frame or for every edge drawn.
+ *
+ * The Paint objects are shared, so must not be changed by those drawing with them.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class GraphPaints {
+
+    private static final int OVERVIEW_WINDOW_ALPHA = 96; // of 255, so the overview shows through
+
+    private final boolean isNightMode;
+    private final float density;
+    private final float scaledDensity;
+
+    private final int backgroundColor;
+    private final Paint earthPaint;
+    private final Paint surfacePaint;
+    private final Paint dashedLinePaint;
+    private final Paint easyPaint;
+    private final Paint mediumPaint;
+    private final Paint hardPaint;
+    private final TextPaint textPaint;
+    private final Paint badgePaint;
+    private final TextPaint badgeTextPaint;
+    private final Paint overviewWindowPaint;
+    private final Paint overviewMarkerPaint;
+
+    private final int iconPixels;
+    private final int fontPixels;
+    private final int textBufferPixels;
+    private final int nodeIconPixels;
+    private final int nodeIconBufferPixels;
+    private final int badgeRadiusPixels;
+    private final int overviewPixels;
+
+    /**
+     * Builds the Paint objects and dimensions of a theme, at the context's display density.
+     *
+     * @param context from the parent's Activity
+     * @param isNightMode true if the UI is in night mode
+     */
+    GraphPaints(Context context, boolean isNightMode) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        this.isNightMode = isNightMode;
+        density = metrics.density;
+        scaledDensity = metrics.scaledDensity;
+
+        backgroundColor = context.getResources().getColor(isNightMode ? R.color.black : R.color.white, null);
+        earthPaint = GraphView.getEarthPaint(context);
+        surfacePaint = GraphView.getSurfacePaint(isNightMode, context);
+        dashedLinePaint = GraphView.getDashedLinePaint(context);
+        easyPaint = GraphView.getEazyPaint(context);
+        mediumPaint = GraphView.getMediumPaint(context);
+        hardPaint = GraphView.getHardPaint(context);
+
+        fontPixels = Calcs.spToPx(GraphView.FONT_SP_SIZE, context);
+        textPaint = new TextPaint();
+        textPaint.setAntiAlias(true);
+        textPaint.setTextSize(fontPixels);
+        if (!isNightMode) {
+            textPaint.setColor(context.getResources().getColor(R.color.black, null));
+        } else {
+            textPaint.setColor(context.getResources().getColor(R.color.gray_light, null));
+        }
+
+        badgeRadiusPixels = Calcs.dpToPx(GraphView.BADGE_RADIUS_DP, context);
+        badgePaint = new Paint();
+        badgePaint.setAntiAlias(true);
+        badgePaint.setStyle(Paint.Style.FILL);
+        badgePaint.setColor(context.getResources().getColor(R.color.red_medium, null));
+        badgeTextPaint = new TextPaint();
+        badgeTextPaint.setAntiAlias(true);
+        badgeTextPaint.setTextSize(badgeRadiusPixels * 1.25f);
+        badgeTextPaint.setTextAlign(Paint.Align.CENTER);
+        badgeTextPaint.setColor(context.getResources().getColor(R.color.white, null));
+
+        overviewPixels = Calcs.dpToPx(GraphView.OVERVIEW_HEIGHT_DP, context);
+        overviewWindowPaint = new Paint();
+        overviewWindowPaint.setStyle(Paint.Style.FILL);
+        overviewWindowPaint.setColor(context.getResources().getColor(R.color.blue_light, null));
+        overviewWindowPaint.setAlpha(OVERVIEW_WINDOW_ALPHA);
+        overviewMarkerPaint = new Paint();
+        overviewMarkerPaint.setStyle(Paint.Style.STROKE);
+        overviewMarkerPaint.setStrokeWidth(Calcs.dpToPx(GraphView.DASHED_LINE_DP, context));
+        overviewMarkerPaint.setColor(context.getResources().getColor(R.color.red_medium, null));
+
+        iconPixels = Calcs.dpToPx(GraphView.DRAWN_ICON_DP, context);
+        textBufferPixels = Calcs.dpToPx(4.0f, context);
+        nodeIconPixels = Calcs.dpToPx(GraphView.DEFAULT_NODE_ICON_SIZE, context);
+        nodeIconBufferPixels = Calcs.dpToPx(GraphView.DEFAULT_NODE_ICON_BUFFER, context);
+    }
+
+    /**
+     * Returns whether these were built for the theme and the context's current display density.
+     *
+     * @param context from the parent's Activity
+     * @param isNightMode true if the UI is in night mode
+     * @return true if these may still be used
+     */
+    boolean isCurrent(Context context, boolean isNightMode) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        return this.isNightMode == isNightMode && density == metrics.density && scaledDensity == metrics.scaledDensity;
+    }
+
+    /**
+     * Gets whether these are of the night mode theme.
+     *
+     * @return true if of night mode
+     */
+    boolean isNightMode() {
+        return isNightMode;
+    }
+
+    /**
+     * Gets the color of the background.
+     *
+     * @return color, as ARGB
+     */
+    int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    /**
+     * Gets the Paint object for the "Earth" below the trail line.
+     *
+     * @return shared Paint object
+     */
+    Paint getEarthPaint() {
+        return earthPaint;
+    }
+
+    /**
+     * Gets the Paint object for the hiking trail.
+     *
+     * @return shared Paint object
+     */
+    Paint getSurfacePaint() {
+        return surfacePaint;
+    }
+
+    /**
+     * Gets the Paint object for vertical and horizontal indicator lines.
+     *
+     * @return shared Paint object
+     */
+    Paint getDashedLinePaint() {
+        return dashedLinePaint;
+    }
+
+    /**
+     * Gets the Paint object for easy-difficultly slope.
+     *
+     * @return shared Paint object
+     */
+    Paint getEasyPaint() {
+        return easyPaint;
+    }
+
+    /**
+     * Gets the Paint object for medium-difficultly slope.
+     *
+     * @return shared Paint object
+     */
+    Paint getMediumPaint() {
+        return mediumPaint;
+    }
+
+    /**
+     * Gets the Paint object for hard-difficultly slope.
+     *
+     * @return shared Paint object
+     */
+    Paint getHardPaint() {
+        return hardPaint;
+    }
+
+    /**
+     * Gets the TextPaint object for the location time, zoom and touch point text.
+     *
+     * @return shared TextPaint object
+     */
+    TextPaint getTextPaint() {
+        return textPaint;
+    }
+
+    /**
+     * Gets the Paint object for the badge of an icon hiding overlapping icons.
+     *
+     * @return shared Paint object
+     */
+    Paint getBadgePaint() {
+        return badgePaint;
+    }
+
+    /**
+     * Gets the TextPaint object for the count of icons within a badge, centered.
+     *
+     * @return shared TextPaint object
+     */
+    TextPaint getBadgeTextPaint() {
+        return badgeTextPaint;
+    }
+
+    /**
+     * Gets the Paint object for the window of the view within the overview strip.
+     *
+     * @return shared Paint object
+     */
+    Paint getOverviewWindowPaint() {
+        return overviewWindowPaint;
+    }
+
+    /**
+     * Gets the Paint object for the observer's position within the overview strip.
+     *
+     * @return shared Paint object
+     */
+    Paint getOverviewMarkerPaint() {
+        return overviewMarkerPaint;
+    }
+
+    /**
+     * Gets the height of the overview strip.
+     *
+     * @return height, in pixels
+     */
+    int getOverviewPixels() {
+        return overviewPixels;
+    }
+
+    /**
+     * Gets the radius of the badge of an icon hiding overlapping icons.
+     *
+     * @return radius, in pixels
+     */
+    int getBadgeRadiusPixels() {
+        return badgeRadiusPixels;
+    }
+
+    /**
+     * Gets the size of the drawn hiker, water, camp and info icons.
+     *
+     * @return size, in pixels
+     */
+    int getIconPixels() {
+        return iconPixels;
+    }
+
+    /**
+     * Gets the size of the text font.
+     *
+     * @return size, in pixels
+     */
+    int getFontPixels() {
+        return fontPixels;
+    }
+
+    /**
+     * Gets the space between the touch point and its text.
+     *
+     * @return space, in pixels
+     */
+    int getTextBufferPixels() {
+        return textBufferPixels;
+    }
+
+    /**
+     * Gets the size of the touchable area of a node's icon.
+     *
+     * @return size, in pixels
+     */
+    int getNodeIconPixels() {
+        return nodeIconPixels;
+    }
+
+    /**
+     * Gets the space around the touchable area of a node's icon.
+     *
+     * @return space, in pixels
+     */
+    int getNodeIconBufferPixels() {
+        return nodeIconBufferPixels;
+    }
+}
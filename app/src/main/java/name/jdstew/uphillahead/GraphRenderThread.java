@@ -0,0 +1,172 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import android.graphics.Canvas;
+import android.util.Log;
+import android.view.SurfaceHolder;
+
+/**
+ * The GraphRenderThread class draws the GraphView onto its Surface, away from the UI thread.
+ * The UI thread posts FrameRequests, at most once per vsync (see GraphView.requestFrame()), and
+ * the thread draws the latest one; requests posted while a frame is being drawn are coalesced,
+ * so that a burst of input or location updates draws only once more.  A request that would
+ * draw the same frame as the last one drawn is skipped, see FrameRequest.isSameFrame().  Every
+ * frame is drawn here, so this is where frame cost is measured.
+ *
+ * The thread runs from the creation to the destruction of the GraphView's Surface.  Frames are
+ * drawn on a hardware-accelerated canvas, falling back to software only if the Surface refuses
+ * one.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class GraphRenderThread extends Thread {
+
+    private static final String DEBUG_TAG = "name.jdstew.uphillahead.GraphRenderThread";
+
+    private final GraphView graphView;
+    private final SurfaceHolder holder;
+
+    // guarded by this
+    private FrameRequest pendingRequest;
+    private boolean isRunning;
+
+    private FrameRequest lastRequest; // of the frame on the Surface, or null
+    private boolean isHardwareCanvas; // until the Surface refuses a hardware-accelerated canvas
+
+    /**
+     * Creates the render thread of a GraphView
+     *
+     * @param graphView the GraphView to render
+     * @param holder the SurfaceHolder of the GraphView
+     */
+    GraphRenderThread(GraphView graphView, SurfaceHolder holder) {
+        super("GraphRenderThread");
+        this.graphView = graphView;
+        this.holder = holder;
+        isRunning = true;
+        isHardwareCanvas = true;
+    }
+
+    /**
+     * Posts a request to draw a frame, replacing any request not yet drawn.
+     *
+     * @param request the frame to draw
+     */
+    synchronized void requestFrame(FrameRequest request) {
+        pendingRequest = request;
+        notifyAll();
+    }
+
+    /**
+     * Stops the thread, waiting for any frame being drawn to finish, as the Surface may not be
+     * used after it is destroyed.
+     */
+    void quit() {
+        synchronized (this) {
+            isRunning = false;
+            notifyAll();
+        }
+
+        boolean isInterrupted = false;
+        while (isAlive()) {
+            try {
+                join();
+            } catch (InterruptedException ie) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            FrameRequest request;
+            synchronized (this) {
+                while (isRunning && pendingRequest == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+                if (!isRunning) {
+                    return;
+                }
+                request = pendingRequest;
+                pendingRequest = null;
+            }
+
+            drawFrame(request);
+        }
+    }
+
+    private void drawFrame(FrameRequest request) {
+        if (request.getWidth() <= 0 || request.getHeight() <= 0) {
+            return; // the surface has not been sized
+        }
+        if (request.isSameFrame(lastRequest) && !request.isDebugOverlay()) {
+            return; // nothing visible changed (but the overlay's measurements do)
+        }
+
+        Canvas canvas = lockCanvas();
+        if (canvas == null) {
+            return; // the surface is not available
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        long startHeap = runtime.totalMemory() - runtime.freeMemory();
+        long startTime = System.nanoTime();
+        try {
+            graphView.render(canvas, request);
+        } catch (RuntimeException re) {
+            Log.e(DEBUG_TAG, "unable to render frame", re);
+        } finally {
+            holder.unlockCanvasAndPost(canvas);
+        }
+        lastRequest = request;
+        long frameNanos = System.nanoTime() - startTime;
+        Instrumentation.FRAME_TIME.record(frameNanos);
+        long heapGrowth = runtime.totalMemory() - runtime.freeMemory() - startHeap;
+        if (heapGrowth >= 0) { // otherwise, garbage was collected during the frame
+            Instrumentation.FRAME_ALLOCATION.record(heapGrowth);
+        }
+//        Log.d(DEBUG_TAG, "frame took " + frameNanos / 1_000 + " microseconds");
+    }
+
+    /**
+     * Locks the Surface's canvas, hardware-accelerated unless the Surface has refused one, in
+     * which case every later frame is drawn in software.
+     *
+     * @return the locked canvas, or null if the Surface is not available
+     */
+    private Canvas lockCanvas() {
+        if (isHardwareCanvas) {
+            try {
+                return holder.lockHardwareCanvas();
+            } catch (IllegalStateException | UnsupportedOperationException e) {
+                Log.w(DEBUG_TAG, "hardware-accelerated canvas unavailable, drawing in software");
+                isHardwareCanvas = false;
+            }
+        }
+        return holder.lockCanvas();
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import android.content.SharedPreferences;
+
+import java.util.Objects;
+
+/**
+ * The GraphSettings class is a snapshot of the preferences of the GraphView, read and parsed
+ * (e.g., from the Strings of the zoom and vertical bias) once, when the preferences change,
+ * so that the render, gesture and location paths read plain fields.  A GraphSettings is
+ * never changed once created; the GraphView publishes a new snapshot instead.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class GraphSettings {
+
+    private final String routeName;
+    private final boolean isDirectionToEnd;
+    private final String system;
+    private final double zoomDist;
+    private final double vertBias;
+    private final double vertExag;
+    private final double paceBias;
+    private final int snapToTrail;
+    private final boolean isTrailMode;
+    private final boolean isDebugOverlay;
+
+    private GraphSettings(String routeName, boolean isDirectionToEnd, String system, double zoomDist,
+                          double vertBias, double vertExag, double paceBias, int snapToTrail,
+                          boolean isTrailMode, boolean isDebugOverlay) {
+        this.routeName = routeName;
+        this.isDirectionToEnd = isDirectionToEnd;
+        this.system = system;
+        this.zoomDist = zoomDist;
+        this.vertBias = vertBias;
+        this.vertExag = vertExag;
+        this.paceBias = paceBias;
+        this.snapToTrail = snapToTrail;
+        this.isTrailMode = isTrailMode;
+        this.isDebugOverlay = isDebugOverlay;
+    }
+
+    /**
+     * Reads a snapshot of the preferences.
+     *
+     * @param prefs the app's preferences
+     * @return the snapshot
+     */
+    public static GraphSettings read(SharedPreferences prefs) {
+        return new GraphSettings(
+                prefs.getString("route_pref_key", String.valueOf(R.string.txt_route_title)),
+                prefs.getString("direction_pref_key", Config.DIRECTION_TO_DEFAULT).compareTo(Config.DIRECTION_TO_END) == 0,
+                prefs.getString("system_pref_key", Config.SYSTEM_DEFAULT),
+                Double.parseDouble(prefs.getString(Config.ZOOM_KEY, Double.toString(Config.ZOOM_DEFAULT))),
+                Double.parseDouble(prefs.getString(Config.VERTICAL_BIAS_KEY, Double.toString(Config.VERTICAL_BIAS_DEFAULT))),
+                prefs.getInt(Config.EXAGGERATION_KEY, (int) Config.EXAGGERATION_DEFAULT),
+                prefs.getInt("pace_pref_key", (int) Config.PACE_BIAS_DEFAULT) * Config.PACE_PREFS_MULTIPLIER,
+                Config.getSnapToTrailValue(prefs.getString(Config.SNAP_TO_TRAIL_KEY, Config.SNAP_TO_TRAIL_DEFAULT)),
+                prefs.getBoolean(Config.TRAIL_MODE_KEY, false),
+                prefs.getBoolean(Config.DEBUG_OVERLAY_KEY, false));
+    }
+
+    /**
+     * Returns a copy of this snapshot with a new zoom and vertical bias, e.g., after a scroll,
+     * before they are written to the preferences.
+     *
+     * @param zoomDist distance displayed across the width of the graph, in meters
+     * @param vertBias vertical bias of the graph, see Config.VERTICAL_BIAS_*
+     * @return the new snapshot
+     */
+    public GraphSettings withView(double zoomDist, double vertBias) {
+        return new GraphSettings(routeName, isDirectionToEnd, system, zoomDist, vertBias, vertExag,
+                paceBias, snapToTrail, isTrailMode, isDebugOverlay);
+    }
+
+    /**
+     * Writes the zoom and vertical bias of this snapshot to the preferences.
+     *
+     * @param editor of the app's preferences, which is not applied here
+     */
+    public void putView(SharedPreferences.Editor editor) {
+        editor.putString(Config.ZOOM_KEY, Double.toString(zoomDist));
+        editor.putString(Config.VERTICAL_BIAS_KEY, Double.toString(vertBias));
+    }
+
+    /**
+     * Gets the name of the selected route.
+     *
+     * @return route name
+     */
+    public String getRouteName() {
+        return routeName;
+    }
+
+    /**
+     * Gets the direction of travel.
+     *
+     * @return true for from start-to-end manner
+     */
+    public boolean isDirectionToEnd() {
+        return isDirectionToEnd;
+    }
+
+    /**
+     * Gets the measurement system.
+     *
+     * @return see Config class for metric or imperial
+     */
+    public String getSystem() {
+        return system;
+    }
+
+    /**
+     * Gets the distance displayed across the width of the graph.
+     *
+     * @return distance, in meters
+     */
+    public double getZoomDist() {
+        return zoomDist;
+    }
+
+    /**
+     * Gets the vertical bias of the graph.
+     *
+     * @return vertical bias, see Config.VERTICAL_BIAS_*
+     */
+    public double getVertBias() {
+        return vertBias;
+    }
+
+    /**
+     * Gets the vertical exaggeration of the graph.
+     *
+     * @return vertical exaggeration
+     */
+    public double getVertExag() {
+        return vertExag;
+    }
+
+    /**
+     * Gets the pace multiplier of the user.
+     *
+     * @return pace multiplier
+     */
+    public double getPaceBias() {
+        return paceBias;
+    }
+
+    /**
+     * Gets the distance within which the observer is on trail.
+     *
+     * @return distance, in meters
+     */
+    public int getSnapToTrail() {
+        return snapToTrail;
+    }
+
+    /**
+     * Gets whether the graph is drawn only on a location fix or a user interaction.
+     *
+     * @return true if in trail mode
+     */
+    public boolean isTrailMode() {
+        return isTrailMode;
+    }
+
+    /**
+     * Gets whether the performance overlay is shown, see the Instrumentation class.
+     *
+     * @return true if shown
+     */
+    public boolean isDebugOverlay() {
+        return isDebugOverlay;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GraphSettings)) {
+            return false;
+        }
+        GraphSettings other = (GraphSettings) o;
+        return isDirectionToEnd == other.isDirectionToEnd
+                && Double.compare(zoomDist, other.zoomDist) == 0
+                && Double.compare(vertBias, other.vertBias) == 0
+                && Double.compare(vertExag, other.vertExag) == 0
+                && Double.compare(paceBias, other.paceBias) == 0
+                && snapToTrail == other.snapToTrail
+                && isTrailMode == other.isTrailMode
+                && isDebugOverlay == other.isDebugOverlay
+                && Objects.equals(routeName, other.routeName)
+                && Objects.equals(system, other.system);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(routeName, isDirectionToEnd, system, zoomDist, vertBias, vertExag,
+                paceBias, snapToTrail, isTrailMode, isDebugOverlay);
+    }
+}
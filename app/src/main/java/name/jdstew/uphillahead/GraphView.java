@@ -25,14 +25,18 @@ import android.graphics.Canvas;
 import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Picture;
 import android.graphics.Point;
 import android.graphics.drawable.VectorDrawable;
 import android.location.Location;
 import android.net.Uri;
 import android.text.TextPaint;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
@@ -56,17 +60,22 @@ import com.google.android.gms.tasks.OnSuccessListener;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
  * The GraphView class  provides the visual display of the current Graph (aka route or trail).
  *
+ * The graph is drawn onto the SurfaceView's Surface by a GraphRenderThread, rather than in
+ * onDraw() on the UI thread.  Input, location and preference callbacks only derive a new
+ * FrameRequest and request a frame, which is posted at most once per vsync; the render(...)
+ * method, and the fields it uses, belong to the render thread, which posts anything that must
+ * be shown by the UI thread (e.g., a Node's details).  Toasts and dialogs of the observer's
+ * location are shown by the UI thread when it is matched to the route, see checkTrail().
+ *
  * @since 1.0
  * @author Jeff Stewart, jeffrey.d.stew@gmail.com
  */
-public class GraphView extends SurfaceView implements SharedPreferences.OnSharedPreferenceChangeListener, OnSuccessListener<Location> {
+public class GraphView extends SurfaceView implements SharedPreferences.OnSharedPreferenceChangeListener, OnSuccessListener<Location>, SurfaceHolder.Callback {
     /**
      * Logcat identifier
      */
@@ -88,26 +97,83 @@ public class GraphView extends SurfaceView implements SharedPreferences.OnShared
      * The dp length and width of a SVG icon
      */
     public static final int DRAWN_ICON_DP = 48;
+    /**
+     * The dp radius of the badge counting overlapping icons
+     */
+    public static final int BADGE_RADIUS_DP = 10;
+    /**
+     * The dp height of the overview strip of the whole route
+     */
+    public static final int OVERVIEW_HEIGHT_DP = 40;
     public static final int FONT_SP_SIZE = 18;
 
+    /**
+     * Reason for a frame: a new location fix
+     */
+    public static final int FRAME_LOCATION = 1;
+    /**
+     * Reason for a frame: a user interaction, i.e., a touch, gesture, dialog or preference
+     */
+    public static final int FRAME_INTERACTION = 2;
+    /**
+     * Reason for a frame: the surface, configuration or route changed, so the frame shown is
+     * missing or wrong
+     */
+    public static final int FRAME_SURFACE = 3;
+    /**
+     * Reason for a frame: background work refined the profile already shown (e.g., its tiles
+     * are ready), which trail mode defers to the next frame of another reason
+     */
+    public static final int FRAME_REFRESH = 4;
+
     private final Observer observer;
-    private final Node observerNode;
-    private Location observerLocation;
-    private boolean isOffGraphAcceptable;
-    private final HashMap<NodePoint, Node> iconMap;
     private final SharedPreferences prefs;
-    protected Point touchPoint;
-    private final Path surfacePath; // A line Path of elevations
-    private final Path earthPolygon; // The surfacePath filled in below
+    private volatile GraphSettings settings; // rebuilt by onSharedPreferenceChanged(), and by endGesture() with its view
+    private FrameRequest frameRequest; // the latest request, only changed on the UI thread
+    private GraphRenderThread renderThread; // while the Surface exists
+    private boolean isFrameScheduled; // until the next vsync, see requestFrame()
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> {
+        isFrameScheduled = false;
+        if (renderThread != null) {
+            renderThread.requestFrame(frameRequest); // the latest, of every reason since the last vsync
+        }
+    };
+    private boolean isNearTrailEnd; // within a zoom's distance, already toasted
+    private AlertDialog offTrailDialog;
+
+    // used only by the render thread
+    private final ProfileEngine engine = new ProfileEngine(); // the profile's geometry, drawn by renderBase()
+    private final ProfileTileCache tileCache; // the profile's earth and surface, drawn ahead on the tile thread
+    private ProfileTileCache.Layer tileLayer;
+    private ProfileTileCache.Tile[] shownTiles; // those in view, while drawn
+    private final Paint tilePaint = new Paint(Paint.FILTER_BITMAP_FLAG); // scaled up to the zoom
+    private final Point touchPoint;
+    private int detailsTouchVersion = -1; // of the last touch whose Node details were posted, see renderOverlay()
+    private GraphPaints paints; // rebuilt on a theme or density change
+    private Picture basePicture; // the profile, drawn again only for a new base, see FrameRequest.isSameBase()
+    private Bitmap baseBitmap; // the profile, when the Surface's canvas is not hardware-accelerated
+    private Canvas baseCanvas;
+    private boolean isBaseHardware;
+    private FrameRequest baseRequest;
+    private boolean isBaseGraphed; // false if the profile is not graphed (e.g., off trail)
+    private final ProfileShape profileShape = new ProfileShape(); // the surface and earth, scaled from meters
     private final Path linePath; // horizontal and vertical site lines
-    private final StringBuffer zoomLevelText;
-    private final StringBuffer nodeDetailsText;
+    private final StringBuilder zoomLevelText; // reused every frame, see DisplayFormatter
+    private final StringBuilder badgeText = new StringBuilder(); // reused for every badge
+    private Bitmap overviewBitmap; // the whole route, drawn again only for another route, direction or size
+    private Canvas overviewCanvas;
+    private Graph overviewGraph;
+    private boolean isOverviewToEnd;
+    private GraphPaints overviewPaints;
+    private final Path overviewPath = new Path();
+    private final StringBuilder instrumentationText; // reused every frame, see Instrumentation
+    private final long[] instrumentationSamples = new long[Instrumentation.getBufferSize()];
+    private final StringBuilder nodeDetailsText;
+    private final DateFormat locationTimeFormatter;
     private final VectorDrawable drawableGreenHiker;
     private final VectorDrawable drawableYellowHiker;
     private final VectorDrawable drawableGrayHiker;
-    private final VectorDrawable drawableWater;
-    private final VectorDrawable drawableTent;
-    private final VectorDrawable drawableInfo;
+    private final VectorDrawable[] poiDrawables; // indexed by PoiType
 
     private final GestureDetector gestureDetector;
     AppCompatActivity parentActivity;
@@ -128,569 +194,964 @@ public class GraphView extends SurfaceView implements SharedPreferences.OnShared
         double storedLatitude = Double.parseDouble(prefs.getString("location_latitude_pref_key", Double.toString(Config.LOCATION_DEFAULT_LATITUDE)));
         double storedLongitude = Double.parseDouble(prefs.getString("location_longitude_pref_key", Double.toString(Config.LOCATION_DEFAULT_LONGITUDE)));
         double storedElevation = Double.parseDouble(prefs.getString("location_elevation_pref_key", Double.toString(0.0)));
-        observerNode = new Node(storedLatitude, storedLongitude, storedElevation);
+        settings = GraphSettings.read(prefs);
+        frameRequest = new FrameRequest(storedLatitude, storedLongitude, storedElevation).withSettings(settings, isNightMode());
+        matchObserver();
         observer = Observer.getInstance(this, (MainActivity)parentActivity);
-        isOffGraphAcceptable = false;
+        selectPaceModel(prefs);
 
-        iconMap = new HashMap<>();
+        tileCache = ProfileTileCache.getInstance(parentActivity);
+        tileCache.setOnTileReady(() -> post(() -> { // draw the profile again, with the tiles
+            frameRequest = frameRequest.withBaseChanged();
+            requestFrame(FRAME_REFRESH);
+        }));
 
         // NOTE: a touchPoint outside the GraphView will not be displayed.
         touchPoint = new Point(Integer.MAX_VALUE, Integer.MAX_VALUE);
 
-        surfacePath = new Path();
-        earthPolygon = new Path();
         linePath = new Path();
 
-        zoomLevelText = new StringBuffer();
-        nodeDetailsText = new StringBuffer();
+        zoomLevelText = new StringBuilder();
+        instrumentationText = new StringBuilder();
+        nodeDetailsText = new StringBuilder();
+        locationTimeFormatter = new SimpleDateFormat("H:mm");
 
         drawableGreenHiker = (VectorDrawable) getContext().getDrawable(R.drawable.hiker_green_24);
         drawableYellowHiker = (VectorDrawable) getContext().getDrawable(R.drawable.hiker_yellow_24);
         drawableGrayHiker = (VectorDrawable) getContext().getDrawable(R.drawable.hiker_gray_24);
-        drawableWater = (VectorDrawable) getContext().getDrawable(R.drawable.water_24);
-        drawableTent = (VectorDrawable) getContext().getDrawable(R.drawable.tent_24);
-        drawableInfo = (VectorDrawable) getContext().getDrawable(R.drawable.info_24);
+        poiDrawables = new VectorDrawable[PoiType.COUNT];
+        poiDrawables[PoiType.WATER] = (VectorDrawable) getContext().getDrawable(R.drawable.water_24);
+        poiDrawables[PoiType.CAMP] = (VectorDrawable) getContext().getDrawable(R.drawable.tent_24);
+        poiDrawables[PoiType.INFO] = (VectorDrawable) getContext().getDrawable(R.drawable.info_24);
 
         gestureDetector = new GestureDetector(parentActivity, new GraphGestureDetector(this));
 
-        setOnTouchListener((v, event) -> gestureDetector.onTouchEvent(event));
+        setOnTouchListener((v, event) -> {
+            boolean isHandled = gestureDetector.onTouchEvent(event);
+            int action = event.getActionMasked();
+            if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) && frameRequest.isGesture()) {
+                endGesture();
+            } else if (frameRequest.isScrubbing()) {
+                if (action == MotionEvent.ACTION_MOVE) {
+                    startScrub((int) event.getX(), (int) event.getY());
+                } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                    setTouchPoint((int) event.getX(), (int) event.getY()); // the readout stays where lifted
+                }
+                isHandled = true;
+            }
+            return isHandled;
+        });
+        getHolder().addCallback(this);
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        renderThread = new GraphRenderThread(this, holder);
+        renderThread.start();
     }
 
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        frameRequest = frameRequest.withSize(width, height);
+        requestFrame(FRAME_SURFACE);
+    }
 
     @Override
-    public void onSuccess(Location location) {
-        observerNode.changeLocation(location.getLatitude(), location.getLongitude(), location.getAltitude());
-        observerLocation = location;
-        isOffGraphAcceptable = false;
-//        Log.d(DEBUG_TAG, "Location update triggered invalidate()");
-        invalidate();
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        renderThread.quit();
+        renderThread = null;
     }
 
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String prefs_key) {
-//        Log.d(DEBUG_TAG, "preferences change listener called");
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // the render thread rebuilds its GraphPaints for a new theme or density
+        frameRequest = frameRequest.withSettings(settings, isNightMode());
+        requestFrame(FRAME_SURFACE);
+    }
 
-        if (prefs_key.compareTo("route_pref_key") == 0) {
-            isOffGraphAcceptable = false; // reset if route changed
+    /**
+     * Requests a frame of the latest FrameRequest, called on the UI thread.  Requests are
+     * coalesced until the next vsync, when the latest FrameRequest is posted to be drawn, if the
+     * Surface exists (otherwise, it is drawn once the Surface is created and sized).  So, the
+     * render thread wakes at most once per display refresh, whatever the number of reasons.
+     *
+     * In trail mode, a refresh is deferred to the next frame of another reason, which draws
+     * the latest FrameRequest, so the graph is drawn only on a location fix or an interaction
+     * (or when the surface needs it).
+     *
+     * @param reason for the frame, see FRAME_*
+     */
+    void requestFrame(int reason) {
+        if (reason == FRAME_REFRESH && settings.isTrailMode()) {
+            return;
+        }
+        if (!isFrameScheduled) {
+            isFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
         }
     }
 
-    @Override
-    public void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
+    /**
+     * Sets (or clears, with FrameRequest.NO_TOUCH) the touch point and draws a frame.
+     *
+     * @param x horizontal coordinate within the view
+     * @param y vertical coordinate within the view
+     */
+    void setTouchPoint(int x, int y) {
+        frameRequest = frameRequest.withTouchPoint(x, y);
+        requestFrame(FRAME_INTERACTION);
+    }
 
-//        Log.i(DEBUG_TAG, "GraphView.onDraw() started");
-//        Log.i(DEBUG_TAG, "Canvas is (" + canvas.getWidth() + " by " + canvas.getHeight() + ")");
+    /**
+     * Starts scrubbing (e.g., on a long press): the touch point then follows the finger until
+     * it is lifted, and each move draws only the touch feedback.
+     *
+     * @param x horizontal coordinate within the view
+     * @param y vertical coordinate within the view
+     */
+    void startScrub(int x, int y) {
+        frameRequest = frameRequest.withScrubPoint(x, y);
+        requestFrame(FRAME_INTERACTION);
+    }
 
-        iconMap.clear();
+    /**
+     * Gets the snapshot of the preferences, which may be read from any thread.
+     *
+     * @return the current GraphSettings
+     */
+    GraphSettings getSettings() {
+        return settings;
+    }
 
-        surfacePath.rewind();
-        earthPolygon.rewind();
-        linePath.rewind();
+    /**
+     * Changes the view during a scroll gesture and draws a frame, called on the UI thread.  The
+     * profile already drawn is scaled and translated to the view, and is drawn again only when
+     * the zoom crosses into another level of detail, see FrameRequest.withGestureView().
+     *
+     * @param zoomDist distance displayed across the width of the graph, in meters
+     * @param vertBias vertical bias of the graph, see Config.VERTICAL_BIAS_*
+     */
+    void setGestureView(double zoomDist, double vertBias) {
+        frameRequest = frameRequest.withGestureView(zoomDist, vertBias).withTouchPoint(FrameRequest.NO_TOUCH, FrameRequest.NO_TOUCH);
+        requestFrame(FRAME_INTERACTION);
+    }
 
-        zoomLevelText.delete(0, zoomLevelText.length());
-        nodeDetailsText.delete(0, nodeDetailsText.length());
+    /**
+     * Ends a scroll gesture, called on the UI thread when the finger is lifted.  The profile
+     * is drawn at the final view, which is written to the preferences once per gesture, rather
+     * than for each of its frames.  The resulting onSharedPreferenceChanged() finds the
+     * settings unchanged, so does not draw again.
+     */
+    void endGesture() {
+        settings = settings.withView(frameRequest.getZoomDist(), frameRequest.getVertBias());
+        frameRequest = frameRequest.withSettings(settings, frameRequest.isNightMode());
+        requestFrame(FRAME_INTERACTION);
 
+        SharedPreferences.Editor editor = prefs.edit();
+        settings.putView(editor);
+        editor.apply();
+    }
+
+    /**
+     * Returns whether the UI is in night mode.
+     *
+     * @return true if in night mode
+     */
+    private boolean isNightMode() {
         int nightModeFlags = getContext().getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
-        boolean isNightMode = nightModeFlags == Configuration.UI_MODE_NIGHT_YES;
-//        Log.i("name.jdstew.uphillahead.GraphView", "Is night mode? " + isNightMode);
-
-
-        String directionPref = prefs.getString("direction_pref_key", Config.DIRECTION_TO_DEFAULT);
-        boolean isDirectionToEnd = directionPref.compareTo(Config.DIRECTION_TO_END) == 0;
-//        Log.i("name.jdstew.uphillahead.GraphView", "Is direction to end? " + isDirectionToEnd);
-        String system = prefs.getString("system_pref_key", Config.SYSTEM_DEFAULT);
-//        Log.i("name.jdstew.uphillahead.GraphView", "Measurement system is " + system);
-        double zoomDist = Double.parseDouble(prefs.getString("zoom_pref_key", Double.toString(Config.ZOOM_DEFAULT)));
-//        Log.i("name.jdstew.uphillahead.GraphView", "Zoom distance is " + String.format("%2.1f", zoomDist));
-        double vertBias = Double.parseDouble(prefs.getString("vertical_bias_pref_key", Double.toString(Config.VERTICAL_BIAS_DEFAULT)));
-//        Log.i("name.jdstew.uphillahead.GraphView", "Vertical bias is " + String.format("%2.1f", vertBias));
-        double vertExag = prefs.getInt("exaggeration_pref_key", (int) Config.EXAGGERATION_DEFAULT);
-//        Log.i("name.jdstew.uphillahead.GraphView", "Vertical exaggeration is " + vertExag);
-        double paceBias = prefs.getInt("pace_pref_key", (int) Config.PACE_BIAS_DEFAULT) * Config.PACE_PREFS_MULTIPLIER;
-//        Log.i("name.jdstew.uphillahead.GraphView", "Pace bias is " + paceBias);
-
-        // compute scale of graph to display View
-//        Log.i("name.jdstew.uphillahead.GraphView", "Canvas width is " + getWidth());
-        double horiScale = (double)getWidth() / zoomDist; // equals number of pixels per meter
-//        Log.i("name.jdstew.uphillahead.GraphView", "horizontal scale is " + horiScale);
-        double vertScale = horiScale * vertExag; // equals number of pixel per meter by exaggeration
-
-        // initialize starting position of Paths on screen
-        double currentX = 0.0;
-        double currentY = (double)getHeight() / 2.0 * (1.0 + vertBias);
-        double startingY = currentY;
-        double previousX;
-
-        double touchPointDist = 0.0;
-        double touchPointTime = 0.0;
-        double touchPointGain = 0.0;
-        double touchPointLoss = 0.0;
-
-        double cumDist = 0.0;
-        double cumTime = 0.0;
-        double cumGain = 0.0;
-        double cumLoss = 0.0;
-        double pace = 0.0;
-
-        surfacePath.moveTo((float) currentX, (float) currentY);
-        earthPolygon.moveTo((float) currentX, (float) currentY);
-
-        Graph graph = GraphManager.getInstance(getContext()).getGraph(prefs.getString("route_pref_key", String.valueOf(R.string.txt_route_title)));
-        if (graph == null) {
-//            Log.i("name.jdstew.uphillahead.GraphView", "Cannot render graph - Graph object is null.");
-            return;
-        }
+        return nightModeFlags == Configuration.UI_MODE_NIGHT_YES;
+    }
 
-        // todo: get snap-to-distance
-        int snapToTrail = Config.getSnapToTrailValue(prefs.getString("snap_to_trail_pref_key", Config.SNAP_TO_TRAIL_DEFAULT));
-//        Log.i("name.jdstew.uphillahead.GraphView", "Snap-to-trail is " + snapToTrail);
 
-        double distToTrail = graph.setEntryEdge(observerNode, isDirectionToEnd);
-//        Log.i(DEBUG_TAG, "observerNode is " + observerNode);
-        Log.i(DEBUG_TAG, "observerNode distance to trail is " + Calcs.getDisplayedDist(distToTrail, system));
-        // is the current location off trail?
-        if (distToTrail > (double)snapToTrail) {
-            // has the user accepted the location as being off trial?
-            if (isOffGraphAcceptable) {
-                // todo: display distance to trail and time of last update
-                return; // meaning do not graph
-            } else { // ask the user if they'd like to simulate location at the closest Graph Node?
-                StringBuilder sb = new StringBuilder();
-                sb.append("Currently ");
-                sb.append(Calcs.getDisplayedDist(distToTrail, system));
-                sb.append(" from trail. Simulate closet point on trail?");
-
-                // Use the Builder class for convenient dialog construction
-                // Note: AlertDialog is non-blocking by design
-                AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
-                builder.setMessage(sb.toString())
-                        .setPositiveButton(R.string.opt_simulate, new DialogInterface.OnClickListener() {
-                            public void onClick(DialogInterface dialog, int id) {
-                                Node closestNode = null;
-                                // note: only one edge of the observer node is null
-                                if (observerNode.getNextEdge() != null) {
-                                    closestNode =  observerNode.getNextEdge().getNextNode();
-                                } else if (observerNode.getPrevEdge() != null)  {
-                                    closestNode =  observerNode.getPrevEdge().getPrevNode();
-                                } else {
-//                                    Log.e(DEBUG_TAG, "closestNode has no non-null edge!");
-                                }
-//                                Log.i(DEBUG_TAG, "setting simulated node to " + closestNode);
-                                observer.setSimulatedLocation(closestNode.getLatitude(), closestNode.getLongitude(), closestNode.getElevation());
-                            }
-                        })
-                        .setNegativeButton(R.string.opt_cancel, new DialogInterface.OnClickListener() {
-                            public void onClick(DialogInterface dialog, int id) {
-                                isOffGraphAcceptable = true;
-                                Toast.makeText(getContext(), "Location off-trail - nothing to display", Toast.LENGTH_LONG).show();
-                            }
-                        });
-                // Create the AlertDialog object and show it
-                builder.create().show();
-
-                return; // meaning, do not graph until the dialog is answered
+    @Override
+    public void onSuccess(Location location) {
+        frameRequest = frameRequest.withObserver(location.getLatitude(), location.getLongitude(), location.getAltitude(),
+                location.getProvider().compareTo(Config.SOURCE_SIMULATED) != 0, location.getTime(),
+                locationTimeFormatter.format(new Date(location.getTime()))); // once per location, not per frame
+        matchObserver();
+//        Log.d(DEBUG_TAG, "Location update triggered requestFrame()");
+        requestFrame(FRAME_LOCATION);
+    }
+
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String prefs_key) {
+//        Log.d(DEBUG_TAG, "preferences change listener called");
+
+        if (prefs_key.startsWith("pace_model_") || prefs_key.startsWith("pace_custom_")) {
+            if (selectPaceModel(sharedPreferences)) {
+                // the difficulty bands are recomputed with the times, so draw the profile again,
+                // even in trail mode, as the user changed the model
+                GraphManager.getInstance(getContext()).recomputeEtas(() -> post(() -> {
+                    frameRequest = frameRequest.withBaseChanged();
+                    requestFrame(FRAME_INTERACTION);
+                }));
             }
         }
-//        Log.i(DEBUG_TAG, "cursorNode at: " + cursorNode.toString());
 
-        Node cursorNode = observerNode;
-        while (cursorNode != null && (int)currentX < getWidth()) {
-//          Log.i(DEBUG_TAG, "Cursor at (" + currentX + ", " + currentY + ")");
-            previousX = currentX;
+        GraphSettings newSettings = GraphSettings.read(sharedPreferences);
+        if (!newSettings.equals(settings)) { // e.g., not the write of a view already drawn
+            settings = newSettings;
+            frameRequest = frameRequest.withSettings(newSettings, isNightMode());
+            if (frameRequest.getTrailMatch() == null) { // the route or direction changed
+                matchObserver();
+            }
+            requestFrame(FRAME_INTERACTION);
+        }
+    }
 
-            Edge edge;
-            if (isDirectionToEnd) { // direction forward
-                edge = cursorNode.getNextEdge();
-                if (edge == null) {
-                    break; // however, this shouldn't happen
-                }
+    /**
+     * Matches the observer's location to the selected route, called on the UI thread when the
+     * location, route or direction changes, so that drawing a frame does no spatial search.
+     */
+    private void matchObserver() {
+        FrameRequest request = frameRequest;
+        Graph graph = GraphManager.getInstance(getContext()).getGraph(request.getRouteName());
+        TrailMatch match = null;
+        if (graph != null) {
+            match = TrailMatch.match(graph, request.getLatitude(), request.getLongitude(),
+                    request.getElevation(), request.isDirectionToEnd());
+        }
+        frameRequest = request.withTrailMatch(match);
+        post(this::checkTrail); // e.g., once attached, when matched in the constructor
+    }
 
-                if (edge.getVerticalDistance() > 0.0) {
-                    cumGain += edge.getVerticalDistance();
-                } else {
-                    cumLoss += edge.getVerticalDistance();
-                }
-            } else {
-                edge = cursorNode.getPrevEdge();
-                if (edge == null) {
-                    break; // however, this shouldn't happen
-                }
+    /**
+     * Tells the user where the observer is relative to the trail, called on the UI thread
+     * (rather than by the render thread on every frame) once the location is matched: asks
+     * whether to simulate an off-trail location on the trail, or toasts when the end of the
+     * trail first comes within the view.
+     */
+    private void checkTrail() {
+        FrameRequest request = frameRequest;
+        TrailMatch match = request.getTrailMatch();
+        if (match == null) {
+            return;
+        }
 
-                if (edge.getVerticalDistance() > 0.0) {
-                    cumLoss -= edge.getVerticalDistance();
-                } else {
-                    cumGain -= edge.getVerticalDistance();
-                }
+        double distToTrail = match.getDistToTrail();
+        if (distToTrail > (double)request.getSnapToTrail() && !request.isOffGraphAcceptable()) {
+            showOffTrailDialog(Calcs.getDisplayedDist(distToTrail, request.getSystem()), match.getClosestNode());
+            return;
+        }
+
+        Graph graph = match.getGraph();
+        double entryDist = match.getEntryDistance();
+        double remainingDist = request.isDirectionToEnd()
+                ? graph.getDistance(graph.getNodeCount() - 1) - entryDist
+                : entryDist;
+        boolean isNearEnd = Double.isNaN(entryDist) || remainingDist < request.getZoomDist();
+        if (isNearEnd && !isNearTrailEnd) {
+            if (request.isDirectionToEnd()) { // direction forward
+                Toast.makeText(getContext(), "At or near end of trail.", Toast.LENGTH_LONG).show();
+            } else {
+                Toast.makeText(getContext(), "At or near start of trail.", Toast.LENGTH_LONG).show();
             }
-//            Log.i("name.jdstew.uphillahead.GraphView", "cumGain: " + cumGain + ", cumLoss: " + cumLoss);
+        }
+        isNearTrailEnd = isNearEnd;
+    }
 
-            // plot by distance change formula
-            currentX += edge.getHorizontalDistance() * horiScale;
-            // plot by distance change formula
-//              currentY = startingY + ((startingElev - cursorNode.getElevation()) * vertScale);
-//              Log.i("name.jdstew.uphillahead.GraphView", "node elevation is " + cursorNode.getElevation());
+    /**
+     * Compiles the pace model of the preferences into the current PaceTable.
+     *
+     * @param sharedPreferences the app's preferences
+     * @return true if the pace model changed
+     */
+    private static boolean selectPaceModel(SharedPreferences sharedPreferences) {
+        return PaceTable.select(PaceModels.getPaceModel(
+                sharedPreferences.getString(Config.PACE_MODEL_KEY, Config.PACE_MODEL_DEFAULT),
+                sharedPreferences.getInt(Config.PACE_CUSTOM_FLAT_KEY, Config.PACE_CUSTOM_FLAT_DEFAULT),
+                sharedPreferences.getInt(Config.PACE_CUSTOM_CLIMB_KEY, Config.PACE_CUSTOM_CLIMB_DEFAULT),
+                sharedPreferences.getString(Config.PACE_CUSTOM_ALTITUDE_KEY, Config.PACE_ALTITUDE_DEFAULT)));
+    }
 
-            // plot by elevation change formula
-            if (isDirectionToEnd) {
-                currentY -= edge.getVerticalDistance() * vertScale;
+    /**
+     * Draws a frame of the graph, called only by the render thread.  The profile is drawn into
+     * a cached base layer, only when the request's base has changed, and then copied to the
+     * Surface with the overlay of touch feedback.  So, a tap draws only the overlay.
+     *
+     * On a hardware-accelerated canvas (see GraphRenderThread), the base layer is a recorded
+     * Picture, replayed by the GPU; otherwise, it is a Bitmap drawn in software.
+     *
+     * @param canvas of the locked Surface
+     * @param request the frame to draw
+     */
+    void render(Canvas canvas, FrameRequest request) {
+        int width = request.getWidth();
+        int height = request.getHeight();
+        boolean isNightMode = request.isNightMode();
+
+        if (paints == null || !paints.isCurrent(getContext(), isNightMode)) {
+            paints = new GraphPaints(getContext(), isNightMode);
+            baseRequest = null; // draw the profile with the new paints
+        }
+
+        boolean isHardware = canvas.isHardwareAccelerated();
+        if (!request.isSameBase(baseRequest) || isHardware != isBaseHardware) {
+            long startTime = System.nanoTime();
+            if (isHardware) {
+                if (baseBitmap != null) {
+                    baseBitmap.recycle();
+                    baseBitmap = null;
+                }
+                if (basePicture == null) {
+                    basePicture = new Picture();
+                }
+                isBaseGraphed = renderBase(basePicture.beginRecording(width, height), request);
+                basePicture.endRecording();
             } else {
-                currentY += edge.getVerticalDistance() * vertScale;
-            }
-//              Log.i("name.jdstew.uphillahead.GraphView", "currently at (" + (int)currentX + ", " + (int)currentY + ")");
-            surfacePath.lineTo((float) currentX, (float) currentY);
-
-            // calculate pace based upon this edge, for use in partial and cumulative calculations
-            pace = Calcs.getPace(edge.getSlope(), cursorNode.getElevation());
-
-            // Is the touch point along this Edge?  If so, calculate the partial distance and time
-            if (touchPoint.x >= (int)previousX && touchPoint.x < (int)currentX) {
-                double partialEdgePercent = (touchPoint.x - previousX) / (currentX - previousX);
-                touchPointDist = cumDist + partialEdgePercent * edge.getDistance();
-                touchPointTime = cumTime + (partialEdgePercent * edge.getDistance() / 1_000.0) / (pace * paceBias); // t = d/s
-
-                if (isDirectionToEnd) { // direction forward
-                    if (edge.getVerticalDistance() >= 0.0) {
-                        touchPointGain = cumGain + (edge.getVerticalDistance() * partialEdgePercent);
-                        touchPointLoss = cumLoss;
-                    } else {
-                        touchPointGain = cumGain;
-                        touchPointLoss = cumLoss + (edge.getVerticalDistance() * partialEdgePercent);
-                    }
-                } else {
-                    if (edge.getVerticalDistance() > 0.0) {
-                        touchPointGain = cumGain;
-                        touchPointLoss = cumLoss - (edge.getVerticalDistance() * partialEdgePercent);
-                    } else {
-                        touchPointGain = cumGain - (edge.getVerticalDistance() * partialEdgePercent);
-                        touchPointLoss = cumLoss;
+                basePicture = null;
+                if (baseBitmap == null || baseBitmap.getWidth() != width || baseBitmap.getHeight() != height) {
+                    if (baseBitmap != null) {
+                        baseBitmap.recycle();
                     }
+                    baseBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                    baseCanvas = new Canvas(baseBitmap);
                 }
+                isBaseGraphed = renderBase(baseCanvas, request);
             }
+            baseRequest = request;
+            isBaseHardware = isHardware;
+            Instrumentation.BASE_TIME.record(System.nanoTime() - startTime);
+        }
 
-            // calculate pace and cumulative time
-            cumDist += edge.getDistance(); // meters
-            cumTime += (edge.getDistance() / 1_000.0) / (pace * paceBias); // time = speed / distance, in Km/hr
+        // during a scroll gesture, the profile is scaled about the observer to the gesture's view
+        float scale = (float) (request.getBaseZoomDist() / request.getZoomDist());
+        float baseY = (float) (height / 2.0 * (1.0 + request.getBaseVertBias()));
+        float viewY = (float) (height / 2.0 * (1.0 + request.getVertBias()));
+        boolean isTransformed = scale != 1.0f || baseY != viewY;
+        if (isTransformed) {
+            canvas.drawColor(paints.getBackgroundColor()); // behind a profile moved vertically
+            canvas.save();
+            canvas.translate(0.0f, viewY);
+            canvas.scale(scale, scale);
+            canvas.translate(0.0f, -baseY);
+        }
+        if (isBaseHardware) {
+            canvas.drawPicture(basePicture);
+        } else {
+            canvas.drawBitmap(baseBitmap, 0.0f, 0.0f, null);
+        }
+        if (isTransformed) {
+            canvas.restore();
+        }
+        if (isBaseGraphed) {
+            renderOverlay(canvas, request);
+        }
+        if (request.isDebugOverlay()) {
+            renderInstrumentation(canvas, request);
+        }
+    }
 
-            // Z-order-10. Horizontal Green-Yellow-Red rectangles [LIGHT ONLY]
-            if (!isNightMode) {
-                earthPolygon.lineTo((float) currentX, (float) currentY);
+    /**
+     * Draws the performance overlay [upper right]: the p50, p95 and maximum of each of the
+     * Instrumentation's histograms, one per line.
+     *
+     * @param canvas of the locked Surface
+     * @param request the frame to draw
+     */
+    private void renderInstrumentation(Canvas canvas, FrameRequest request) {
+        TextPaint textPaint = paints.getTextPaint();
+        float fontPixels = paints.getFontPixels();
+        for (int i = 0; i < Instrumentation.getCount(); ++i) {
+            instrumentationText.setLength(0);
+            Instrumentation.appendSummary(instrumentationText, i, instrumentationSamples);
+            float x = request.getWidth() - textPaint.measureText(instrumentationText, 0, instrumentationText.length()) - fontPixels;
+            float y = fontPixels * (i + 2) + paints.getOverviewPixels(); // below the overview strip
+            canvas.drawText(instrumentationText, 0, instrumentationText.length(), x, y, textPaint);
+        }
+    }
 
-                if (pace > Config.DIFFICULTY_EASY_MIN) { // easy
-                    canvas.drawRect((float) previousX, 0.0f, (float) currentX, getHeight(), GraphView.getEazyPaint(this.getContext()));
-                } else if (pace < Config.DIFFICULTY_HARD_MAX) {  // hard
-                    canvas.drawRect((float) previousX, 0.0f, (float) currentX, getHeight(), GraphView.getHardPaint(this.getContext()));
-                } else { // medium
-                    canvas.drawRect((float) previousX, 0.0f, (float) currentX, getHeight(), GraphView.getMediumPaint(this.getContext()));
-                }
-            }
+    /**
+     * Draws the profile of the graph (i.e., everything but the touch feedback and the observer),
+     * recording the Nodes drawn for the overlay.
+     *
+     * @param canvas of the base layer
+     * @param request the frame to draw
+     * @return true if the profile was graphed
+     */
+    private boolean renderBase(Canvas canvas, FrameRequest request) {
+//        Log.i(DEBUG_TAG, "GraphView.renderBase() started");
+//        Log.i(DEBUG_TAG, "Canvas is (" + canvas.getWidth() + " by " + canvas.getHeight() + ")");
+        int width = request.getWidth();
+        int height = request.getHeight();
 
-            // Is the node a source of water, campsite, or information?
-            if (cursorNode.getDescription() != null) {
-                NodePoint np;
-                if (cursorNode.getName().contains("WA") || cursorNode.getName().contains("WR")) {
-                    np = new NodePoint(drawableWater, currentX, currentY, cumDist, cumTime, cumGain, cumLoss);
-                    iconMap.put(np, cursorNode);
-                } else if (cursorNode.getName().contains("CS")) {
-                    np = new NodePoint(drawableTent, currentX, currentY, cumDist, cumTime, cumGain, cumLoss);
-                    iconMap.put(np, cursorNode);
-                } else if (cursorNode.getName() != null) {
-                    np = new NodePoint(drawableInfo, currentX, currentY, cumDist, cumTime, cumGain, cumLoss);
-                    iconMap.put(np, cursorNode);
-                }
-            }
+        linePath.rewind();
 
-            if (isDirectionToEnd) { // direction forward
-                cursorNode = cursorNode.getNextEdge().getNextNode();
-            } else {
-                cursorNode = cursorNode.getPrevEdge().getPrevNode();
-            }
+        zoomLevelText.setLength(0);
+
+        boolean isNightMode = request.isNightMode();
+        boolean isDirectionToEnd = request.isDirectionToEnd();
+        String system = request.getSystem();
+        double zoomDist = request.getBaseZoomDist();
+        double vertBias = request.getBaseVertBias();
+
+        // the base layer keeps its previous contents, unlike a View's canvas
+        canvas.drawColor(paints.getBackgroundColor());
+
+        Graph graph = GraphManager.getInstance(getContext()).getGraph(request.getRouteName());
+        if (graph == null) {
+//            Log.i("name.jdstew.uphillahead.GraphView", "Cannot render graph - Graph object is null.");
+            return false;
         }
 
-        // Z-order-20. Brown "earth" filled polygon [Path earthPolygon; LIGHT ONLY]
-        if (!isNightMode) {
-            // go to bottom right
-            earthPolygon.lineTo((float)currentX, (float)getHeight());
-            // go to bottom left
-            earthPolygon.lineTo(0.0f, (float)getHeight());
-            // return to start, to close Path
-            earthPolygon.lineTo(0.0f, (float)startingY);
+        // the location is matched to the route once per location fix, not per frame
+        TrailMatch match = request.getTrailMatch();
+        if (match == null || !match.isOf(graph, isDirectionToEnd)) { // e.g., the Graph was reloaded
+            post(() -> {
+                matchObserver();
+                requestFrame(FRAME_SURFACE);
+            });
+            return false;
+        }
+        double distToTrail = match.getDistToTrail();
+//        Log.i(DEBUG_TAG, "observerNode is " + match.getObserverNode());
+//        Log.i(DEBUG_TAG, "observerNode distance to trail is " + Calcs.getDisplayedDist(distToTrail, system));
+        // is the current location off trail?
+        if (distToTrail > (double)request.getSnapToTrail()) {
+            // the user is asked whether to simulate the location on trail, see checkTrail()
+            // todo: display distance to trail and time of last update
+            return false; // meaning, do not graph (until the dialog is answered)
+        }
+
+        // the geometry is computed without the canvas, then drawn here
+        engine.compute(match, width, height, zoomDist, vertBias, request.getVertExag(), request.getPaceBias(), paints.getIconPixels());
+        Instrumentation.EDGES_WALKED.record(engine.getEdgesWalked());
+        Instrumentation.VERTICES.record(engine.getGeometry().getVertexCount());
+        float startingY = engine.getStartingY();
 
-            canvas.drawPath(earthPolygon, GraphView.getEarthPaint(this.getContext()));
+        // Z-order-10. Horizontal Green-Yellow-Red rectangles [LIGHT ONLY]
+        if (!isNightMode) {
+            drawDifficultyBands(canvas, height);
         }
-        earthPolygon.rewind();
 
-        // Z-order-30. Black/gray "surface" path# [Path surfacePath;]
-        canvas.drawPath(surfacePath, GraphView.getSurfacePaint(isNightMode, this.getContext()));
-        surfacePath.rewind();
+        // Z-order-20 and 30, composited from the tiles of the profile once they are ready
+        if (!drawTiles(canvas, match, request, zoomDist, startingY)) {
+            // the surface and earth, built in meters only when walked again, then scaled to the view
+            profileShape.draw(canvas, engine, height, isNightMode ? null : paints.getEarthPaint(), paints.getSurfacePaint());
+        }
 
         // Z-order-40. Gray horizontal ‘level’ line
-        canvas.drawLine(0.0f, (float)startingY, (float)getWidth(), (float)startingY, GraphView.getDashedLinePaint(getContext()));
+        canvas.drawLine(0.0f, startingY, (float)width, startingY, paints.getDashedLinePaint());
+
+        // Z-order-60. Visible distance text [lower right]
+        // get: system preference
+        DisplayFormatter.appendDist(zoomLevelText, zoomDist, system);
+        TextPaint zoomTextPaint = paints.getTextPaint();
+        float zoomX = width - zoomTextPaint.measureText(zoomLevelText, 0, zoomLevelText.length()) - paints.getFontPixels();
+        float zoomY = height - 2.0f * paints.getFontPixels();// (float)startingY + (-zoomTextPaint.ascent() + zoomTextPaint.descent()) + (float)(getHeight() * 0.10); //canvas.getHeight() - (-zoomTextPaint.ascent() + zoomTextPaint.descent());
+        canvas.drawText(zoomLevelText, 0, zoomLevelText.length(), zoomX, zoomY, zoomTextPaint);
+
+        // Z-order-70. Next WA and CS text box [lower left]
+        // TODO: consider adding this at some later time
+
+        // Z-order-80. Water, camp, and info icons#
+        // water icons are drawn below the Node; overlapping icons are counted in a badge
+        IconIndex icons = engine.getIcons();
+        int iconPixels = paints.getIconPixels();
+        for (int i = 0; i < icons.getCount(); ++i) {
+            if (!icons.isShown(i)) {
+                continue;
+            }
+            float x, y;
+            if (icons.isBelow(i)) {
+                x = (float) (icons.getX(i) - (double) (iconPixels / 2.0));
+                y = (float) icons.getY(i);
+            } else {
+                x = (float) (icons.getX(i) - (double) (iconPixels / 2.0));
+                y = (float) (icons.getY(i) - iconPixels);
+            }
+            VectorDrawable icon = poiDrawables[icons.getType(i)];
+            icon.setBounds((int)x, (int)y, (int)(x + iconPixels), (int)(y + iconPixels));
+            icon.draw(canvas);
+            if (icons.getClusterCount(i) > 0) {
+                drawBadge(canvas, x + iconPixels, y, icons.getClusterCount(i) + 1);
+            }
+        }
+//        Log.d(DEBUG_TAG, "GraphView.renderBase() finished (" + iterations + " iterations)");
+        return true;
+    }
+
+    /**
+     * Draws the observer and the touch feedback over the profile: the touch point's line and
+     * readout, or a touched Node's details.
+     *
+     * @param canvas of the locked Surface
+     * @param request the frame to draw
+     */
+    private void renderOverlay(Canvas canvas, FrameRequest request) {
+        int width = request.getWidth();
+        int height = request.getHeight();
+        String system = request.getSystem();
+        double startingY = (double)height / 2.0 * (1.0 + request.getVertBias());
+
+        touchPoint.set(request.getTouchX(), request.getTouchY());
+        nodeDetailsText.setLength(0);
+
+        // Z-order-45. Overview strip of the whole route [top]
+        drawOverview(canvas, request);
 
         // Z-order-50. Observer (person) icon
-        int iconPixels = Calcs.dpToPx(DRAWN_ICON_DP, getContext());
+        int iconPixels = paints.getIconPixels();
         // was location obtain recently?
-        if (observerLocation == null || observerLocation.getProvider().compareTo(Config.SOURCE_SIMULATED) == 0) {
+        if (!request.isLocationFixed()) {
             drawableGrayHiker.setBounds(0, ((int)startingY - (iconPixels / 2)), iconPixels, ((int)startingY - (iconPixels / 2)) + iconPixels);
             drawableGrayHiker.draw(canvas);
-        } else if (observerLocation.getTime() >= System.currentTimeMillis() - Config.LOCATION_RECENT) {
+        } else if (request.getLocationTime() >= System.currentTimeMillis() - Config.LOCATION_RECENT) {
             drawableGreenHiker.setBounds(0, ((int)startingY - (iconPixels / 2)), iconPixels, ((int)startingY - (iconPixels / 2)) + iconPixels);
             drawableGreenHiker.draw(canvas);
         } else {
             drawableYellowHiker.setBounds(0, ((int)startingY - (iconPixels / 2)), iconPixels, ((int)startingY - (iconPixels / 2)) + iconPixels);
             drawableYellowHiker.draw(canvas);
 
-            DateFormat timeFormatter = new SimpleDateFormat("H:mm");
-            Date locationTime = new Date(observerLocation.getTime());
-            String displayTime = timeFormatter.format(locationTime);
-
-            TextPaint locationTimeTextPaint = new TextPaint();
-            locationTimeTextPaint.setAntiAlias(true);
-            locationTimeTextPaint.setTextSize(Calcs.spToPx(FONT_SP_SIZE, getContext()));
-            if (!isNightMode) {
-                locationTimeTextPaint.setColor(getResources().getColor(R.color.black, null));
-            } else {
-                locationTimeTextPaint.setColor(getResources().getColor(R.color.gray_light, null));
-            }
             float locationTimeX = 0;
-            float locationTimeY = (int)startingY + (2 * Calcs.spToPx(FONT_SP_SIZE, getContext()));
+            float locationTimeY = (int)startingY + (2 * paints.getFontPixels());
 
-            canvas.drawText(displayTime, locationTimeX, locationTimeY, locationTimeTextPaint);
+            canvas.drawText(request.getDisplayedLocationTime(), locationTimeX, locationTimeY, paints.getTextPaint());
         }
 
-        // Z-order-60. Visible distance text [lower right]
-        // get: system preference
-        zoomLevelText.append(Calcs.getDisplayedDist(zoomDist, system));
-        TextPaint zoomTextPaint = new TextPaint();
-        zoomTextPaint.setAntiAlias(true);
-        zoomTextPaint.setTextSize(Calcs.spToPx(FONT_SP_SIZE, getContext()));
-        if (!isNightMode) {
-            zoomTextPaint.setColor(getResources().getColor(R.color.black, null));
-        } else {
-            zoomTextPaint.setColor(getResources().getColor(R.color.gray_light, null));
-        }
-        float zoomX = getWidth() - zoomTextPaint.measureText(zoomLevelText.toString()) - Calcs.spToPx(FONT_SP_SIZE, getContext());
-        float zoomY = getHeight() - 2.0f * Calcs.spToPx(FONT_SP_SIZE, getContext());// (float)startingY + (-zoomTextPaint.ascent() + zoomTextPaint.descent()) + (float)(getHeight() * 0.10); //canvas.getHeight() - (-zoomTextPaint.ascent() + zoomTextPaint.descent());
-        canvas.drawText(zoomLevelText.toString(), zoomX, zoomY, zoomTextPaint);
-
-        // Z-order-70. Next WA and CS text box [lower left]
-        // TODO: consider adding this at some later time
-
-        // Z-order-80. Water, camp, and info icons#
-        // water icons are drawn below the Node
-        iconMap.forEach((np, n) -> {
-            float x, y;
-            if (np.getIcon().equals(drawableWater)) {
-                x = (float) (np.x - (double) (iconPixels / 2.0));
-                y = (float) np.y;
-            } else {
-                x = (float) (np.x - (double) (iconPixels / 2.0));
-                y = (float) (np.y - iconPixels);
-            }
-            np.getIcon().setBounds((int)x, (int)y, (int)(x + iconPixels), (int)(y + iconPixels));
-            np.getIcon().draw(canvas);
-        });
-
         // Z-order-90. Gray vertical line (finger placement)
-        if (touchPoint.x <= getWidth()) {
+        if (touchPoint.x <= width) {
             canvas.drawLine((float)touchPoint.x, 0.0f,
-                    (float)touchPoint.x, (float)getHeight(),
-                    GraphView.getDashedLinePaint(getContext()));
+                    (float)touchPoint.x, (float)height,
+                    paints.getDashedLinePaint());
         }
 
-        // Z-order-100. Pop-up distance and ETA only
-        NodePoint np = getNodePoint(touchPoint);
-        if (np != null) {
-            LayoutInflater layoutInflater = (LayoutInflater) getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-            View nodeDetailView = layoutInflater.inflate(R.layout.activity_node_details, null); // null because no applicable ViewGroup
+        // Z-order-100. Pop-up distance and ETA only (while scrubbing, icons are passed over)
+        int touchedIcon = request.isScrubbing() ? -1 : getTouchedIcon(touchPoint);
+        IconIndex icons = engine.getIcons();
+        if (touchedIcon >= 0) {
+            Node n = icons.getNode(touchedIcon);
 
-            Node n = iconMap.get(np);
-
-            TextView detailsTextView = nodeDetailView.findViewById(R.id.node_details_text);
             nodeDetailsText.append(n.getName());
             nodeDetailsText.append(System.lineSeparator());
-            nodeDetailsText.append(Calcs.getDisplayedDist(np.getDistance(), system));
+            DisplayFormatter.appendDist(nodeDetailsText, icons.getDistance(touchedIcon), system);
             nodeDetailsText.append(", ");
-            nodeDetailsText.append(Calcs.getDisplayedTime(np.getTime(), system));
+            DisplayFormatter.appendTime(nodeDetailsText, icons.getTime(touchedIcon), system);
             nodeDetailsText.append(System.lineSeparator());
-            nodeDetailsText.append("+");
-            nodeDetailsText.append(Calcs.getDisplayedElev(np.getGain(), system));
+            nodeDetailsText.append('+');
+            DisplayFormatter.appendElev(nodeDetailsText, icons.getGain(touchedIcon), system);
             nodeDetailsText.append(" / ");
-            nodeDetailsText.append(Calcs.getDisplayedElev(np.getLoss(), system));
+            DisplayFormatter.appendElev(nodeDetailsText, icons.getLoss(touchedIcon), system);
             nodeDetailsText.append(System.lineSeparator());
             nodeDetailsText.append(n.getDescription());
-            detailsTextView.setText(nodeDetailsText.toString());
-            if (!detailsTextView.isInLayout()) {
-                detailsTextView.requestLayout();  // else call forceLayout()
-            } else {
-//                Log.w(DEBUG_TAG , "unable to request layout of node details popup - in current layout pass" );
-            }
 
-            StringBuilder uriString = new StringBuilder();
-            uriString.append("geo:");
-            uriString.append(n.getLatitude());
-            uriString.append(',');
-            uriString.append(n.getLongitude());
-            uriString.append("?q=");
-            uriString.append(n.getLatitude());
-            uriString.append(',');
-            uriString.append(n.getLongitude());
-            uriString.append('(');
-            uriString.append(n.getName());
-            uriString.append(')');
-
-            if (nodeDetailsText.length() < POPUP_DETAILS_CHAR_THRESHOLD) {
-
-                int w = LinearLayout.LayoutParams.WRAP_CONTENT;
-                int h = LinearLayout.LayoutParams.WRAP_CONTENT;
-                boolean focusable = true;
-                PopupWindow popupWindow = new PopupWindow(nodeDetailView, w, h, focusable);
-
-                int popupX;
-                int popupY;
-
-                if (touchPoint.x + w < getWidth()) {
-                    popupX = touchPoint.x; // right of touch point
-                } else if (touchPoint.x - w > 0) {
-                    popupX = touchPoint.x - w; // left of touch point
-                } else {
-                    popupX = (getWidth() - w) / 2; // horizontal middle
-                }
-
-                if (touchPoint.y + h < getHeight()) {
-                    popupY = touchPoint.y; // below touch point
-                } else if (touchPoint.y - h > 0) {
-                    popupY = touchPoint.y - h; // above touch point
-                } else {
-                    popupY = (getHeight() - h) / 2 - (int) (getHeight() * 0.10); // vertical center
-                }
-
-                Button btnSimulate = nodeDetailView.findViewById(R.id.simulate_button);
-                btnSimulate.setOnClickListener(ocl -> {
-                    touchPoint.set(Integer.MAX_VALUE, Integer.MAX_VALUE);
-                    observer.setSimulatedLocation(n.getLatitude(), n.getLongitude(), n.getElevation());
-                    popupWindow.dismiss();
-                    invalidate();
-                });
-                // template:   geo:<lat>,<long>?q=<lat>,<long>(Label+Name)
-                Button btnGoogleMaps = nodeDetailView.findViewById(R.id.google_map_button);
-                btnGoogleMaps.setOnClickListener(ocl -> {
-                    touchPoint.set(Integer.MAX_VALUE, Integer.MAX_VALUE);
-
-                    Uri gmmIntentUri = Uri.parse(uriString.toString());
-                  Log.e("name.jdstew.uphillahead.GraphView", "gmmIntentUri: " + gmmIntentUri );
-                    Intent mapIntent = new Intent(Intent.ACTION_VIEW, gmmIntentUri);
-                    mapIntent.setPackage("com.google.android.apps.maps");
-                    popupWindow.dismiss();
-                    parentActivity.startActivity(mapIntent);
-                });
-//            Log.i("name.jdstew.uphillahead.GraphView", "Popup window at (" + w + ", " + h + ")" );
-
-                popupWindow.showAtLocation(this, Gravity.NO_GRAVITY, popupX, popupY);
-            } else {
-                Intent i = new Intent(parentActivity, NodeDetailsActivity.class);
-                i.putExtra("description", nodeDetailsText.toString());
-                i.putExtra("latitude", n.getLatitude());
-                i.putExtra("longitude", n.getLongitude());
-                i.putExtra("uriString", uriString.toString());
-                parentActivity.startActivity(i);
+            // once per touch, rather than for each frame drawn before the UI thread clears it
+            if (request.getTouchVersion() != detailsTouchVersion) {
+                detailsTouchVersion = request.getTouchVersion();
+                String details = nodeDetailsText.toString();
+                int touchX = touchPoint.x;
+                int touchY = touchPoint.y;
+                int touchVersion = detailsTouchVersion;
+                post(() -> showNodeDetails(n, details, touchX, touchY, touchVersion));
             }
-            touchPoint.x = Integer.MAX_VALUE;
-            touchPoint.y = Integer.MAX_VALUE;
         } else {
 
-            if (touchPoint.x <= getWidth() && touchPoint.y <= getHeight()) {
+            ProfileReadout readout = engine.getReadout();
+            if (touchPoint.x <= width && touchPoint.y <= height && readout.locate(touchPoint.x)) {
 
-                TextPaint tapTextPaint = new TextPaint();
-                tapTextPaint.setAntiAlias(true);
-                tapTextPaint.setTextSize(Calcs.spToPx(FONT_SP_SIZE, getContext()));
-                if (!isNightMode) {
-                    tapTextPaint.setColor(getResources().getColor(R.color.black, null));
-                } else {
-                    tapTextPaint.setColor(getResources().getColor(R.color.gray_light, null));
-                }
+                TextPaint tapTextPaint = paints.getTextPaint();
 
-                nodeDetailsText.delete(0, nodeDetailsText.length());
-                nodeDetailsText.append(Calcs.getDisplayedDist(touchPointDist, system));
+                nodeDetailsText.setLength(0);
+                DisplayFormatter.appendDist(nodeDetailsText, readout.getDistance(), system);
                 nodeDetailsText.append(", ");
-                nodeDetailsText.append(Calcs.getDisplayedTime(touchPointTime, system));
+                DisplayFormatter.appendTime(nodeDetailsText, readout.getTime(), system);
 
-                float buffer = Calcs.dpToPx(4.0f, getContext());
+                float buffer = paints.getTextBufferPixels();
                 float x;
-                if (touchPoint.x > getWidth() / 2) {
-                    x = touchPoint.x - tapTextPaint.measureText(nodeDetailsText.toString()) - buffer;
+                if (touchPoint.x > width / 2) {
+                    x = touchPoint.x - tapTextPaint.measureText(nodeDetailsText, 0, nodeDetailsText.length()) - buffer;
                 } else {
                     x = touchPoint.x + buffer;
                 }
-                float y = touchPoint.y + tapTextPaint.ascent() - tapTextPaint.descent() - (float)(getHeight() * 0.10);
-                canvas.drawText(nodeDetailsText.toString(), x, y, tapTextPaint);
+                float y = touchPoint.y + tapTextPaint.ascent() - tapTextPaint.descent() - (float)(height * 0.10);
+                canvas.drawText(nodeDetailsText, 0, nodeDetailsText.length(), x, y, tapTextPaint);
 
-                nodeDetailsText.delete(0, nodeDetailsText.length());
-                nodeDetailsText.append("+");
-                nodeDetailsText.append(Calcs.getDisplayedElev(touchPointGain, system));
+                nodeDetailsText.setLength(0);
+                nodeDetailsText.append('+');
+                DisplayFormatter.appendElev(nodeDetailsText, readout.getGain(), system);
                 nodeDetailsText.append(" / ");
-                nodeDetailsText.append(Calcs.getDisplayedElev(touchPointLoss, system));
+                DisplayFormatter.appendElev(nodeDetailsText, readout.getLoss(), system);
 
-                if (touchPoint.x > getWidth() / 2) {
-                    x = touchPoint.x - tapTextPaint.measureText(nodeDetailsText.toString()) - buffer;
+                if (touchPoint.x > width / 2) {
+                    x = touchPoint.x - tapTextPaint.measureText(nodeDetailsText, 0, nodeDetailsText.length()) - buffer;
                 } else {
                     x = touchPoint.x + buffer;
                 }
                 y -= tapTextPaint.ascent() - tapTextPaint.descent();
 
-                canvas.drawText(nodeDetailsText.toString(), x, y, tapTextPaint);
+                canvas.drawText(nodeDetailsText, 0, nodeDetailsText.length(), x, y, tapTextPaint);
             }
         }
+    }
 
-        if ((int)currentX < getWidth()) {
-            if (isDirectionToEnd) { // direction forward
-                Toast.makeText(getContext(), "At or near end of trail.", Toast.LENGTH_LONG).show();
+
+    /**
+     * Draws the overview strip of the whole route, with the window of the view and the
+     * observer's position.  The route's profile is drawn once into a Bitmap, from the Graph's
+     * overview (see Graph.getOverview()), and only the window and position are drawn per frame.
+     *
+     * @param canvas of the locked Surface
+     * @param request the frame to draw
+     */
+    private void drawOverview(Canvas canvas, FrameRequest request) {
+        TrailMatch match = request.getTrailMatch();
+        Graph graph = match.getGraph();
+        boolean isDirectionToEnd = match.isDirectionToEnd();
+        ProfileOverview overview = graph.getOverview();
+        float margin = paints.getTextBufferPixels();
+        int stripWidth = request.getWidth() - 2 * paints.getTextBufferPixels();
+        int stripHeight = paints.getOverviewPixels();
+        if (stripWidth <= 0 || overview.getTotalDistance() <= 0.0) {
+            return;
+        }
+
+        if (overviewBitmap == null || overviewBitmap.getWidth() != stripWidth || overviewBitmap.getHeight() != stripHeight) {
+            if (overviewBitmap != null) {
+                overviewBitmap.recycle();
+            }
+            overviewBitmap = Bitmap.createBitmap(stripWidth, stripHeight, Bitmap.Config.ARGB_8888);
+            overviewCanvas = new Canvas(overviewBitmap);
+            overviewGraph = null;
+        }
+        if (overviewGraph != graph || isOverviewToEnd != isDirectionToEnd || overviewPaints != paints) {
+            drawOverviewBitmap(overview, isDirectionToEnd, stripWidth, stripHeight);
+            overviewGraph = graph;
+            isOverviewToEnd = isDirectionToEnd;
+            overviewPaints = paints;
+        }
+        canvas.drawBitmap(overviewBitmap, margin, margin, null);
+
+        double observerDist = match.getEntryDistance();
+        if (Double.isNaN(observerDist)) {
+            return; // beyond the end of the trail
+        }
+        double totalDist = overview.getTotalDistance();
+        double scale = stripWidth / totalDist;
+        float observerX = margin + (float) ((isDirectionToEnd ? observerDist : totalDist - observerDist) * scale);
+        float windowX = Math.min(observerX + (float) (request.getZoomDist() * scale), margin + stripWidth);
+        canvas.drawRect(observerX, margin, windowX, margin + stripHeight, paints.getOverviewWindowPaint());
+        canvas.drawLine(observerX, margin, observerX, margin + stripHeight, paints.getOverviewMarkerPaint());
+    }
+
+    /**
+     * Draws the profile of the whole route into the overview's Bitmap, in the direction of
+     * travel from left to right.
+     *
+     * @param overview of the route's Graph
+     * @param isDirectionToEnd the direction of travel
+     * @param stripWidth width of the Bitmap, in pixels
+     * @param stripHeight height of the Bitmap, in pixels
+     */
+    private void drawOverviewBitmap(ProfileOverview overview, boolean isDirectionToEnd, int stripWidth, int stripHeight) {
+        overviewCanvas.drawColor(paints.getBackgroundColor());
+
+        int bucketCount = overview.getBucketCount();
+        float lowest = overview.getLowestElevation();
+        float range = Math.max(overview.getHighestElevation() - lowest, 1.0f);
+        float vertScale = (stripHeight - paints.getTextBufferPixels()) / range; // the highest point below the top
+        float bucketWidth = (float) stripWidth / bucketCount;
+
+        overviewPath.rewind();
+        overviewPath.moveTo(0.0f, (float) stripHeight);
+        for (int i = 0; i < bucketCount; ++i) {
+            int bucket = isDirectionToEnd ? i : bucketCount - 1 - i;
+            float y = stripHeight - (overview.getMaxElevation(bucket) - lowest) * vertScale;
+            overviewPath.lineTo((i + 0.5f) * bucketWidth, y);
+        }
+        overviewPath.lineTo((float) stripWidth, (float) stripHeight);
+        overviewPath.close();
+        if (!paints.isNightMode()) {
+            overviewCanvas.drawPath(overviewPath, paints.getEarthPaint());
+        }
+        overviewCanvas.drawPath(overviewPath, paints.getSurfacePaint());
+        overviewPath.rewind();
+    }
+
+    /**
+     * Asks the user whether to simulate their location at the closest point on the trail,
+     * called on the UI thread when the location is off trail.
+     *
+     * @param displayedDistToTrail the displayed distance to the trail
+     * @param closestNode the closest point on the trail
+     */
+    private void showOffTrailDialog(String displayedDistToTrail, Node closestNode) {
+        if (offTrailDialog != null && offTrailDialog.isShowing()) {
+            return; // already asked
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Currently ");
+        sb.append(displayedDistToTrail);
+        sb.append(" from trail. Simulate closet point on trail?");
+
+        // Use the Builder class for convenient dialog construction
+        // Note: AlertDialog is non-blocking by design
+        AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+        builder.setMessage(sb.toString())
+                .setPositiveButton(R.string.opt_simulate, new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int id) {
+//                        Log.i(DEBUG_TAG, "setting simulated node to " + closestNode);
+                        observer.setSimulatedLocation(closestNode.getLatitude(), closestNode.getLongitude(), closestNode.getElevation());
+                    }
+                })
+                .setNegativeButton(R.string.opt_cancel, new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int id) {
+                        frameRequest = frameRequest.withOffGraphAcceptable(true);
+                        Toast.makeText(getContext(), "Location off-trail - nothing to display", Toast.LENGTH_LONG).show();
+                    }
+                });
+        // Create the AlertDialog object and show it
+        offTrailDialog = builder.create();
+        offTrailDialog.show();
+    }
+
+    /**
+     * Shows the details of a touched water, camp or information Node, called on the UI thread.
+     * The touch point is cleared, unless it was already replaced by another touch, whose
+     * details (if any) are then shown instead.
+     *
+     * @param n the touched Node
+     * @param details the displayed details of the Node
+     * @param touchX horizontal coordinate of the touch point
+     * @param touchY vertical coordinate of the touch point
+     * @param touchVersion of the touch point, see FrameRequest.getTouchVersion()
+     */
+    private void showNodeDetails(Node n, String details, int touchX, int touchY, int touchVersion) {
+        if (frameRequest.getTouchVersion() != touchVersion) {
+            return;
+        }
+        frameRequest = frameRequest.withTouchPoint(FrameRequest.NO_TOUCH, FrameRequest.NO_TOUCH);
+
+        LayoutInflater layoutInflater = (LayoutInflater) getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        View nodeDetailView = layoutInflater.inflate(R.layout.activity_node_details, null); // null because no applicable ViewGroup
+
+        TextView detailsTextView = nodeDetailView.findViewById(R.id.node_details_text);
+        detailsTextView.setText(details);
+        if (!detailsTextView.isInLayout()) {
+            detailsTextView.requestLayout();  // else call forceLayout()
+        } else {
+//            Log.w(DEBUG_TAG , "unable to request layout of node details popup - in current layout pass" );
+        }
+
+        StringBuilder uriString = new StringBuilder();
+        uriString.append("geo:");
+        uriString.append(n.getLatitude());
+        uriString.append(',');
+        uriString.append(n.getLongitude());
+        uriString.append("?q=");
+        uriString.append(n.getLatitude());
+        uriString.append(',');
+        uriString.append(n.getLongitude());
+        uriString.append('(');
+        uriString.append(n.getName());
+        uriString.append(')');
+
+        if (details.length() < POPUP_DETAILS_CHAR_THRESHOLD) {
+
+            int w = LinearLayout.LayoutParams.WRAP_CONTENT;
+            int h = LinearLayout.LayoutParams.WRAP_CONTENT;
+            boolean focusable = true;
+            PopupWindow popupWindow = new PopupWindow(nodeDetailView, w, h, focusable);
+
+            int popupX;
+            int popupY;
+
+            if (touchX + w < getWidth()) {
+                popupX = touchX; // right of touch point
+            } else if (touchX - w > 0) {
+                popupX = touchX - w; // left of touch point
             } else {
-                Toast.makeText(getContext(), "At or near start of trail.", Toast.LENGTH_LONG).show();
+                popupX = (getWidth() - w) / 2; // horizontal middle
             }
+
+            if (touchY + h < getHeight()) {
+                popupY = touchY; // below touch point
+            } else if (touchY - h > 0) {
+                popupY = touchY - h; // above touch point
+            } else {
+                popupY = (getHeight() - h) / 2 - (int) (getHeight() * 0.10); // vertical center
+            }
+
+            Button btnSimulate = nodeDetailView.findViewById(R.id.simulate_button);
+            btnSimulate.setOnClickListener(ocl -> {
+                observer.setSimulatedLocation(n.getLatitude(), n.getLongitude(), n.getElevation()); // which draws a frame
+                popupWindow.dismiss();
+            });
+            // template:   geo:<lat>,<long>?q=<lat>,<long>(Label+Name)
+            Button btnGoogleMaps = nodeDetailView.findViewById(R.id.google_map_button);
+            btnGoogleMaps.setOnClickListener(ocl -> {
+                Uri gmmIntentUri = Uri.parse(uriString.toString());
+              Log.e("name.jdstew.uphillahead.GraphView", "gmmIntentUri: " + gmmIntentUri );
+                Intent mapIntent = new Intent(Intent.ACTION_VIEW, gmmIntentUri);
+                mapIntent.setPackage("com.google.android.apps.maps");
+                popupWindow.dismiss();
+                parentActivity.startActivity(mapIntent);
+            });
+//            Log.i("name.jdstew.uphillahead.GraphView", "Popup window at (" + w + ", " + h + ")" );
+
+            popupWindow.showAtLocation(this, Gravity.NO_GRAVITY, popupX, popupY);
+        } else {
+            Intent i = new Intent(parentActivity, NodeDetailsActivity.class);
+            i.putExtra("description", details);
+            i.putExtra("latitude", n.getLatitude());
+            i.putExtra("longitude", n.getLongitude());
+            i.putExtra("uriString", uriString.toString());
+            parentActivity.startActivity(i);
         }
-//        Log.d(DEBUG_TAG, "GraphView.onDraw() finished (" + iterations + " iterations)");
     }
 
     void onStopPsuedo() {
         SharedPreferences.Editor editor = prefs.edit();
-        editor.putString("location_latitude_pref_key", Double.toString(observerNode.getLatitude()));
-        editor.putString("location_longitude_pref_key", Double.toString(observerNode.getLongitude()));
-        editor.putString("location_elevation_pref_key", Double.toString(observerNode.getElevation()));
+        editor.putString("location_latitude_pref_key", Double.toString(frameRequest.getLatitude()));
+        editor.putString("location_longitude_pref_key", Double.toString(frameRequest.getLongitude()));
+        editor.putString("location_elevation_pref_key", Double.toString(frameRequest.getElevation()));
         editor.apply();
     }
 
-    public NodePoint getNodePoint(Point touchPt) {
-//        Log.i("name.jdstew.uphillahead.GraphView", "Touch point at (" + p.x + ", " + p.y + ")");
-        AtomicReference<NodePoint> returnedNode = new AtomicReference<>();
-
-        int icon_size = Calcs.dpToPx(DEFAULT_NODE_ICON_SIZE, this.getContext());
-        int icon_buffer = Calcs.dpToPx(DEFAULT_NODE_ICON_BUFFER, this.getContext());
-
-        // perform basic square search for a Node with detailed information
-        // campsites and info display above the node point
-        // water is assumed display below the node point
-        int iconSquare = icon_size + icon_buffer;
-        if (iconMap != null) {
-            iconMap.forEach((NodePoint nP, Node nV) -> {
-                int minX = nP.x - iconSquare / 2;
-                int maxX = nP.x + iconSquare / 2;
-                int minY, maxY;
-                if (nP.getIcon().equals(drawableWater)) {
-                    minY = nP.y;
-                    maxY = nP.y + iconSquare;
-                } else {
-                    minY = nP.y - iconSquare;
-                    maxY = nP.y;
-                }
+    /**
+     * Draws the earth and surface of the profile from the tiles in view, with the observer at
+     * the left edge (mirroring the tiles in the direction to the start), and requests those
+     * ahead of the observer.  The tiles are scaled up from their zoom to the view's, see
+     * ProfileTileCache.getTileZoom().
+     *
+     * @param canvas of the base layer
+     * @param match the observer's location matched to the Graph
+     * @param request the frame to draw
+     * @param zoomDist distance displayed across the width of the view, in meters
+     * @param startingY vertical position of the observer, in pixels
+     * @return false if a tile is missing, which is requested, and nothing was drawn
+     */
+    private boolean drawTiles(Canvas canvas, TrailMatch match, FrameRequest request, double zoomDist, float startingY) {
+        double observerDist = match.getEntryDistance();
+        if (Double.isNaN(observerDist)) {
+            return false; // beyond the end of the trail
+        }
 
-                if (touchPt.x <= maxX && touchPt.x >= minX && touchPt.y <= maxY && touchPt.y >= minY) {
-//                  Log.i("name.jdstew.uphillahead.GraphView", "Touch point found node");
-                    returnedNode.set(nP);
-                }
-            });
+        Graph graph = match.getGraph();
+        int width = request.getWidth();
+        double tileZoom = ProfileTileCache.getTileZoom(zoomDist);
+        if (tileLayer == null || !tileLayer.isOf(graph, width, tileZoom, request.getVertExag(), paints)) {
+            tileLayer = new ProfileTileCache.Layer(graph, width, tileZoom, request.getVertExag(), paints);
+            shownTiles = new ProfileTileCache.Tile[width / Config.TILE_WIDTH + 2];
         }
 
-        return returnedNode.get();
+        // the tiles in view, in the tiles' pixels from the first Node
+        boolean isDirectionToEnd = match.isDirectionToEnd();
+        float scale = (float) (tileZoom / zoomDist);
+        double observerX = observerDist * tileLayer.getHoriScale();
+        double viewWidth = Math.min(width / scale, width);
+        int first = (int) Math.floor((isDirectionToEnd ? observerX : observerX - viewWidth) / Config.TILE_WIDTH);
+        int last = (int) Math.floor((isDirectionToEnd ? observerX + viewWidth : observerX) / Config.TILE_WIDTH);
+        first = Math.max(first, 0);
+        last = Math.min(last, tileLayer.getTileCount() - 1);
+
+        boolean isComplete = true;
+        for (int index = first; index <= last; ++index) {
+            ProfileTileCache.Tile tile = tileCache.get(tileLayer, index);
+            if (tile == null) {
+                tileCache.request(tileLayer, index, true);
+                isComplete = false;
+            } else if (tile.getBitmap() == null) {
+                isComplete = false; // too steep for a tile
+            }
+            shownTiles[index - first] = tile;
+        }
+        for (int ahead = 1; ahead <= Config.TILE_PREFETCH_COUNT; ++ahead) {
+            int index = isDirectionToEnd ? last + ahead : first - ahead;
+            if (index >= 0 && index < tileLayer.getTileCount()) {
+                tileCache.request(tileLayer, index, false);
+            }
+        }
+        if (!isComplete) {
+            return false;
+        }
+
+        // placed with the observer at the origin, level with its elevation
+        double observerElev = match.getObserverNode().getElevation();
+        double vertScale = tileLayer.getVertScale();
+        float bottom = (request.getHeight() - startingY) / scale;
+        canvas.save();
+        canvas.translate(0.0f, startingY);
+        canvas.scale(scale, scale);
+        for (int index = first; index <= last; ++index) {
+            ProfileTileCache.Tile tile = shownTiles[index - first];
+            Bitmap bitmap = tile.getBitmap();
+            float tileX = (float) (index * (double) Config.TILE_WIDTH - observerX);
+            float tileY = (float) ((observerElev - tile.getTopElevation()) * vertScale);
+            float tileBottom = tileY + bitmap.getHeight();
+
+            canvas.save();
+            if (isDirectionToEnd) {
+                canvas.translate(tileX, 0.0f);
+            } else {
+                canvas.translate(-tileX, 0.0f);
+                canvas.scale(-1.0f, 1.0f);
+            }
+            canvas.drawBitmap(bitmap, 0.0f, tileY, tilePaint);
+            if (!request.isNightMode() && tileBottom < bottom) { // the earth below the tile
+                canvas.drawRect(tile.getContentLeft(), tileBottom - 1.0f, tile.getContentRight(), bottom, paints.getEarthPaint());
+            }
+            canvas.restore();
+            shownTiles[index - first] = null;
+        }
+        canvas.restore();
+        return true;
+    }
+
+    /**
+     * Draws the badge of an icon hiding overlapping icons, see IconIndex.layout().
+     *
+     * @param canvas of the base layer
+     * @param x horizontal position of the badge's center (the icon's upper right), in pixels
+     * @param y vertical position of the badge's center, in pixels
+     * @param iconCount number of icons, shown and hidden
+     */
+    private void drawBadge(Canvas canvas, float x, float y, int iconCount) {
+        TextPaint badgeTextPaint = paints.getBadgeTextPaint();
+        badgeText.setLength(0);
+        badgeText.append(iconCount);
+        float radius = paints.getBadgeRadiusPixels();
+        canvas.drawCircle(x, y, radius, paints.getBadgePaint());
+        float textY = y - (badgeTextPaint.ascent() + badgeTextPaint.descent()) / 2.0f;
+        canvas.drawText(badgeText, 0, badgeText.length(), x, textY, badgeTextPaint);
+    }
+
+    /**
+     * Draws one rectangle for each run of Edges of the same difficulty within the view, rather
+     * than one for each Edge, see ProfileEngine.
+     *
+     * @param canvas of the base layer
+     * @param height of the view, in pixels
+     */
+    private void drawDifficultyBands(Canvas canvas, int height) {
+        for (int band = 0; band < engine.getBandCount(); ++band) {
+            Paint paint;
+            switch (engine.getBandDifficulty(band)) {
+                case DifficultyBands.EASY:
+                    paint = paints.getEasyPaint();
+                    break;
+                case DifficultyBands.HARD:
+                    paint = paints.getHardPaint();
+                    break;
+                default:
+                    paint = paints.getMediumPaint();
+                    break;
+            }
+            canvas.drawRect(engine.getBandStart(band), 0.0f, engine.getBandEnd(band), height, paint);
+        }
+    }
+
+    /**
+     * Returns the water, camp or information icon at a touch point, if any.  Campsites and
+     * information are displayed above their Node, and water below.
+     *
+     * @param touchPt the touch point
+     * @return index of the icon (see IconIndex), or -1 if none
+     */
+    private int getTouchedIcon(Point touchPt) {
+//        Log.i("name.jdstew.uphillahead.GraphView", "Touch point at (" + p.x + ", " + p.y + ")");
+        int iconSquare = paints.getNodeIconPixels() + paints.getNodeIconBufferPixels();
+        return engine.getIcons().find(touchPt.x, touchPt.y, iconSquare);
     }
 
     public static Paint getViewBackgroundPaint(boolean isNight, Context context) {
@@ -732,6 +1193,7 @@ public class GraphView extends SurfaceView implements SharedPreferences.OnShared
             p.setColor(context.getResources().getColor(R.color.black, null));
         }
         p.setStrokeWidth(Calcs.dpToPx(Config.SURFACE_STROKE_WIDTH, context));
+        p.setStrokeCap(Paint.Cap.ROUND); // the surface is drawn as separate lines, see Canvas.drawLines()
         return p;
     }
 
@@ -0,0 +1,375 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The IconIndex class holds the water, camp and information icons drawn in the GraphView's
+ * profile: each icon's Node, position and cumulative values from the observer.  Icons are
+ * added in meters from the observer as the Graph is walked from left to right, so are sorted
+ * by their horizontal position, and are placed in pixels for each zoom and exaggeration (see
+ * place()) without walking again.  A touch is resolved by binary search plus a short scan of
+ * the icons within reach.
+ *
+ * Once added, the icons are laid out (see layout()), so that overlapping icons are not drawn
+ * over one another: the icon of the highest priority is shown, and those it overlaps are
+ * counted in its badge.  Both drawing and touches use only the icons shown.
+ *
+ * The arrays are reused from frame to frame, growing as needed, and are used only by the
+ * render thread.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class IconIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Node[] nodes = new Node[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY]; // see PoiType
+    private double[] alongs = new double[INITIAL_CAPACITY]; // meters ahead of the observer, non-decreasing
+    private double[] rises = new double[INITIAL_CAPACITY]; // meters above the observer
+    private int[] xs = new int[INITIAL_CAPACITY]; // pixels, non-decreasing, see place()
+    private int[] ys = new int[INITIAL_CAPACITY]; // pixels
+    private double[] dists = new double[INITIAL_CAPACITY]; // meters
+    private double[] times = new double[INITIAL_CAPACITY]; // hours, at a pace bias of 1.0, see place()
+    private double[] gains = new double[INITIAL_CAPACITY]; // meters
+    private double[] losses = new double[INITIAL_CAPACITY]; // meters
+    private boolean[] isShown = new boolean[INITIAL_CAPACITY]; // see layout()
+    private int[] clusterCounts = new int[INITIAL_CAPACITY]; // icons hidden by a shown icon
+    private int addedCount;
+    private int count; // of those added, the icons placed within the view
+    private double paceBias = 1.0;
+
+    /**
+     * Removes all of the icons, keeping the arrays.
+     */
+    void clear() {
+        for (int i = 0; i < addedCount; ++i) {
+            nodes[i] = null; // not kept from one Graph to another
+        }
+        addedCount = 0;
+        count = 0;
+    }
+
+    /**
+     * Adds the next icon, at or to the right of those already added.
+     *
+     * @param node the Node of the icon
+     * @param type the Node's type of point of interest, see PoiType
+     * @param along horizontal distance of the Node ahead of the observer, in meters
+     * @param rise elevation of the Node above the observer, in meters
+     * @param dist cumulative distance from the observer, in meters
+     * @param gain cumulative elevation gain from the observer, in meters
+     * @param loss cumulative elevation loss from the observer, in meters
+     */
+    void add(Node node, byte type, double along, double rise,
+             double dist, double gain, double loss) {
+        if (addedCount == xs.length) {
+            grow(addedCount * 2);
+        }
+        nodes[addedCount] = node;
+        types[addedCount] = type;
+        alongs[addedCount] = along;
+        rises[addedCount] = rise;
+        dists[addedCount] = dist;
+        gains[addedCount] = gain;
+        losses[addedCount] = loss;
+        ++addedCount;
+    }
+
+    private void grow(int capacity) {
+        Node[] grownNodes = new Node[capacity];
+        System.arraycopy(nodes, 0, grownNodes, 0, addedCount);
+        nodes = grownNodes;
+        byte[] grownTypes = new byte[capacity];
+        System.arraycopy(types, 0, grownTypes, 0, addedCount);
+        types = grownTypes;
+        int[] grownXs = new int[capacity];
+        System.arraycopy(xs, 0, grownXs, 0, addedCount);
+        xs = grownXs;
+        int[] grownYs = new int[capacity];
+        System.arraycopy(ys, 0, grownYs, 0, addedCount);
+        ys = grownYs;
+        alongs = copyOf(alongs, capacity);
+        rises = copyOf(rises, capacity);
+        dists = copyOf(dists, capacity);
+        times = copyOf(times, capacity);
+        gains = copyOf(gains, capacity);
+        losses = copyOf(losses, capacity);
+        isShown = new boolean[capacity]; // laid out after the icons are added
+        clusterCounts = new int[capacity];
+    }
+
+    private double[] copyOf(double[] a, int capacity) {
+        double[] b = new double[capacity];
+        System.arraycopy(a, 0, b, 0, addedCount);
+        return b;
+    }
+
+    /**
+     * Places the icons within a view in pixels, then to be laid out (see layout()).  Only
+     * those placed are then counted (see getCount()).  Their times are read from the Graph's
+     * cumulative hours, as is the readout of a touch point, so they follow a change of the pace
+     * model without walking the Graph again.
+     *
+     * @param graph the Graph of the icons' Nodes
+     * @param isDirectionToEnd the direction of travel
+     * @param observerHours the Graph's cumulative hours at the observer, in the direction of
+     *                      travel, see Graph.getCumulativeValues()
+     * @param width of the view, in pixels
+     * @param horiScale pixels per meter, horizontally
+     * @param vertScale pixels per meter, vertically
+     * @param originY vertical position of the observer, in pixels
+     * @param paceBias pace multiplier of the user, see getTime()
+     */
+    void place(Graph graph, boolean isDirectionToEnd, double observerHours, int width,
+               double horiScale, double vertScale, double originY, double paceBias) {
+        count = 0;
+        while (count < addedCount && alongs[count] * horiScale <= width) {
+            xs[count] = (int) (alongs[count] * horiScale);
+            ys[count] = (int) (originY - rises[count] * vertScale);
+            int index = nodes[count].getIndex();
+            times[count] = isDirectionToEnd
+                    ? graph.getHours(index, true) - observerHours
+                    : observerHours - graph.getHours(index, false);
+            ++count;
+        }
+        this.paceBias = paceBias;
+    }
+
+    /**
+     * Lays out the icons, once they are all added and placed, so that no two shown icons overlap.  Icons
+     * are placed greedily: by priority of their type (water, then camp, then information, as
+     * ordered by PoiType), then nearest to the observer first.  An icon overlapping one already
+     * placed is hidden, and counted in the badge of the nearest such icon.  Each type is a
+     * pass in order of the icons, so no sort is needed.
+     *
+     * @param iconSize size of a drawn icon, in pixels
+     */
+    void layout(int iconSize) {
+        for (int i = 0; i < count; ++i) {
+            isShown[i] = false;
+            clusterCounts[i] = 0;
+        }
+        for (byte type = PoiType.WATER; type < PoiType.COUNT; ++type) {
+            for (int i = 0; i < count; ++i) {
+                if (types[i] != type) {
+                    continue;
+                }
+                int overlapped = findShownOverlap(i, iconSize);
+                if (overlapped < 0) {
+                    isShown[i] = true;
+                } else {
+                    ++clusterCounts[overlapped];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the shown icon, horizontally nearest, that an icon would overlap.  Only the icons
+     * within an icon's width (by their sorted positions) are scanned.
+     */
+    private int findShownOverlap(int i, int iconSize) {
+        int top = getTop(i, iconSize);
+        int found = -1;
+        int foundDx = Integer.MAX_VALUE;
+        for (int j = i - 1; j >= 0 && xs[i] - xs[j] < iconSize; --j) {
+            if (isShown[j] && Math.abs(getTop(j, iconSize) - top) < iconSize && xs[i] - xs[j] < foundDx) {
+                found = j;
+                foundDx = xs[i] - xs[j];
+            }
+        }
+        for (int j = i + 1; j < count && xs[j] - xs[i] < iconSize; ++j) {
+            if (isShown[j] && Math.abs(getTop(j, iconSize) - top) < iconSize && xs[j] - xs[i] < foundDx) {
+                found = j;
+                foundDx = xs[j] - xs[i];
+            }
+        }
+        return found;
+    }
+
+    private int getTop(int i, int iconSize) {
+        return isBelow(i) ? ys[i] : ys[i] - iconSize;
+    }
+
+    /**
+     * Returns the shown icon whose touchable square contains a touch point.  Where squares
+     * overlap, the icon whose square's center is nearest to the touch point wins (or the
+     * leftmost, if equally near).
+     *
+     * @param touchX horizontal coordinate, in pixels
+     * @param touchY vertical coordinate, in pixels
+     * @param iconSquare size of the touchable square of an icon, in pixels
+     * @return index of the touched icon, or -1 if none
+     */
+    int find(int touchX, int touchY, int iconSquare) {
+        int half = iconSquare / 2;
+
+        // the first icon whose square may reach the touch point
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] + half < touchX) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int found = -1;
+        long foundDistSq = Long.MAX_VALUE;
+        for (int i = low; i < count && xs[i] - half <= touchX; ++i) {
+            if (!isShown[i]) {
+                continue;
+            }
+            int minY = isBelow(i) ? ys[i] : ys[i] - iconSquare;
+            if (touchY < minY || touchY > minY + iconSquare) {
+                continue;
+            }
+
+            long dx = touchX - xs[i];
+            long dy = touchY - (minY + half);
+            long distSq = dx * dx + dy * dy;
+            if (distSq < foundDistSq) {
+                found = i;
+                foundDistSq = distSq;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the number of icons placed within the view.
+     *
+     * @return number of icons
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the Node of an icon.
+     *
+     * @param i index of the icon
+     * @return the Node
+     */
+    Node getNode(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * Gets the type of an icon's Node, as a point of interest.
+     *
+     * @param i index of the icon
+     * @return see PoiType
+     */
+    byte getType(int i) {
+        return types[i];
+    }
+
+    /**
+     * Gets whether an icon is drawn below its Node.
+     *
+     * @param i index of the icon
+     * @return true if below (e.g., water), false if above
+     */
+    boolean isBelow(int i) {
+        return types[i] == PoiType.WATER;
+    }
+
+    /**
+     * Gets whether an icon is shown, or hidden by an overlapping icon, see layout().
+     *
+     * @param i index of the icon
+     * @return true if shown
+     */
+    boolean isShown(int i) {
+        return isShown[i];
+    }
+
+    /**
+     * Gets the number of icons hidden by a shown icon, which are counted in its badge.
+     *
+     * @param i index of the icon
+     * @return number of hidden icons, 0 if none (or if the icon is hidden)
+     */
+    int getClusterCount(int i) {
+        return clusterCounts[i];
+    }
+
+    /**
+     * Gets the horizontal position of an icon's Node.
+     *
+     * @param i index of the icon
+     * @return position, in pixels
+     */
+    int getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Gets the vertical position of an icon's Node.
+     *
+     * @param i index of the icon
+     * @return position, in pixels
+     */
+    int getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Gets the cumulative distance from the observer to an icon.
+     *
+     * @param i index of the icon
+     * @return distance, in meters
+     */
+    double getDistance(int i) {
+        return dists[i];
+    }
+
+    /**
+     * Gets the cumulative time from the observer to an icon.
+     *
+     * @param i index of the icon
+     * @return time, in hours, at the pace bias of place()
+     */
+    double getTime(int i) {
+        return times[i] / paceBias;
+    }
+
+    /**
+     * Gets the cumulative elevation gain from the observer to an icon.
+     *
+     * @param i index of the icon
+     * @return gain, in meters
+     */
+    double getGain(int i) {
+        return gains[i];
+    }
+
+    /**
+     * Gets the cumulative elevation loss from the observer to an icon.
+     *
+     * @param i index of the icon
+     * @return loss, in meters
+     */
+    double getLoss(int i) {
+        return losses[i];
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * The Instrumentation class records the cost of the app's hot paths (drawing a frame, matching
+ * a location to the trail, loading a Graph and handling a location) into rolling histograms,
+ * which are shown by the GraphView's performance overlay (see the debug overlay preference)
+ * and may be exported as CSV from the settings, so that regressions show up on a given phone.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class Instrumentation {
+
+    private static final int SAMPLES = 256; // recent samples kept by each histogram
+    private static final double MILLIS_PER_NANO = 1.0e-6;
+    private static final double KIB_PER_BYTE = 1.0 / 1_024.0;
+
+    /**
+     * Time to draw a frame, from locking to posting the Surface's canvas
+     */
+    static final RollingHistogram FRAME_TIME = new RollingHistogram("frame", "ms", MILLIS_PER_NANO, SAMPLES);
+    /**
+     * Time to draw the profile, when it is drawn again rather than reused
+     */
+    static final RollingHistogram BASE_TIME = new RollingHistogram("profile", "ms", MILLIS_PER_NANO, SAMPLES);
+    /**
+     * Edges walked to draw the profile
+     */
+    static final RollingHistogram EDGES_WALKED = new RollingHistogram("edges", "", 1.0, SAMPLES);
+    /**
+     * Vertices of the surface line, after decimation, drawn in the profile
+     */
+    static final RollingHistogram VERTICES = new RollingHistogram("vertices", "", 1.0, SAMPLES);
+    /**
+     * Growth of the heap while drawing a frame, which is only measurable for frames without a
+     * garbage collection, so is an estimate of the allocations
+     */
+    static final RollingHistogram FRAME_ALLOCATION = new RollingHistogram("alloc", "KiB", KIB_PER_BYTE, SAMPLES);
+    /**
+     * Time to match a location to the trail, see Graph.setEntryEdge()
+     */
+    static final RollingHistogram MATCH_TIME = new RollingHistogram("match", "ms", MILLIS_PER_NANO, SAMPLES);
+    /**
+     * Time to handle a location from the Observer, including matching it
+     */
+    static final RollingHistogram LOCATION_TIME = new RollingHistogram("location", "ms", MILLIS_PER_NANO, SAMPLES);
+    /**
+     * Time to load a Graph, see GraphManager.loadGraph()
+     */
+    static final RollingHistogram LOAD_TIME = new RollingHistogram("load", "ms", MILLIS_PER_NANO, SAMPLES);
+    /**
+     * Time to read or draw a tile of the profile, on the tile thread, see ProfileTileCache
+     */
+    static final RollingHistogram TILE_TIME = new RollingHistogram("tile", "ms", MILLIS_PER_NANO, SAMPLES);
+
+    private static final RollingHistogram[] HISTOGRAMS = {FRAME_TIME, BASE_TIME, EDGES_WALKED,
+            VERTICES, FRAME_ALLOCATION, MATCH_TIME, LOCATION_TIME, LOAD_TIME, TILE_TIME};
+
+    private Instrumentation() {
+        // static methods only
+    }
+
+    /**
+     * Gets the number of histograms, e.g., the lines of the performance overlay.
+     *
+     * @return number of histograms
+     */
+    static int getCount() {
+        return HISTOGRAMS.length;
+    }
+
+    /**
+     * Appends a line summarizing a histogram (its p50, p95 and maximum) for the performance
+     * overlay, which does not allocate besides growing the StringBuilder.
+     *
+     * @param sb the StringBuilder appended to
+     * @param i index of the histogram
+     * @param sorted buffer of at least getBufferSize() samples
+     */
+    static void appendSummary(StringBuilder sb, int i, long[] sorted) {
+        RollingHistogram h = HISTOGRAMS[i];
+        int count = h.copySorted(sorted);
+        sb.append(h.getName());
+        if (!h.getUnit().isEmpty()) {
+            sb.append(' ').append(h.getUnit());
+        }
+        sb.append(" p50 ");
+        appendValue(sb, h.getPercentile(sorted, count, 50.0));
+        sb.append(" p95 ");
+        appendValue(sb, h.getPercentile(sorted, count, 95.0));
+        sb.append(" max ");
+        appendValue(sb, h.getPercentile(sorted, count, 100.0));
+    }
+
+    private static void appendValue(StringBuilder sb, double value) {
+        long tenths = Math.round(value * 10.0);
+        sb.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    /**
+     * Gets the size of the buffer of sorted samples, see appendSummary().
+     *
+     * @return number of samples
+     */
+    static int getBufferSize() {
+        return SAMPLES;
+    }
+
+    /**
+     * Writes the summary of every histogram as CSV, one row per measurement.
+     *
+     * @param file to write, which is replaced
+     * @throws IOException if the file cannot be written
+     */
+    public static void exportCsv(File file) throws IOException {
+        NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
+        nf.setGroupingUsed(false);
+        nf.setMaximumFractionDigits(3);
+
+        long[] sorted = new long[SAMPLES];
+        try (FileWriter fw = new FileWriter(file, false)) { // clobber existing file
+            fw.write("measurement,unit,samples,p50,p95,max");
+            fw.write(System.lineSeparator());
+            for (RollingHistogram h : HISTOGRAMS) {
+                int count = h.copySorted(sorted);
+                fw.write(h.getName() + "," + h.getUnit() + "," + count + ","
+                        + nf.format(h.getPercentile(sorted, count, 50.0)) + ","
+                        + nf.format(h.getPercentile(sorted, count, 95.0)) + ","
+                        + nf.format(h.getPercentile(sorted, count, 100.0)));
+                fw.write(System.lineSeparator());
+            }
+        }
+    }
+}
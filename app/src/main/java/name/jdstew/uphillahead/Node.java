@@ -19,7 +19,6 @@ package name.jdstew.uphillahead;
 import androidx.annotation.NonNull;
 
 import java.io.Serializable;
-import java.text.NumberFormat;
 import java.util.Objects;
 
 /**
@@ -43,6 +42,8 @@ public class Node implements Serializable {
     private String symbol = null;
     private Edge nextEdge = null;
     private Edge prevEdge = null;
+    private transient int index = -1; // within its Graph's nodes, set by Graph.buildColumns()
+    private transient byte poiType = PoiType.NONE; // classified by Graph.buildColumns()
 
     /**
      * Creates a new node.  Nodes should be assumed to be
@@ -196,22 +197,54 @@ public class Node implements Serializable {
         return prevEdge;
     }
 
+    /**
+     * Set the position of this node within its Graph.
+     *
+     * @param index within the Graph's nodes
+     */
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Get the position of this node within its Graph.
+     *
+     * @return index within the Graph's nodes, or -1 if not a Graph's node (e.g., the observer)
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Set the type of this node as a point of interest.
+     *
+     * @param poiType see the PoiType class
+     */
+    void setPoiType(byte poiType) {
+        this.poiType = poiType;
+    }
+
+    /**
+     * Get the type of this node as a point of interest.
+     *
+     * @return see the PoiType class, NONE if not a point of interest
+     */
+    byte getPoiType() {
+        return poiType;
+    }
+
     @NonNull
     @Override
     public String toString() {
-        NumberFormat nf = NumberFormat.getInstance();
-        nf.setMaximumFractionDigits(2);
-        nf.setMinimumIntegerDigits(1);
-
         StringBuilder sb = new StringBuilder();
         sb.append("Node: ");
-        sb.append(nf.format(latitude));
+        DisplayFormatter.appendFixed(sb, latitude, 0, 2, true);
         sb.append(", ");
-        sb.append(nf.format(longitude));
+        DisplayFormatter.appendFixed(sb, longitude, 0, 2, true);
         sb.append(", ");
-        sb.append(nf.format(elevation));
+        DisplayFormatter.appendFixed(sb, elevation, 0, 2, true);
         sb.append("m ");
-        sb.append(nf.format(Calcs.getMetersToFeet(elevation)));
+        DisplayFormatter.appendFixed(sb, Calcs.getMetersToFeet(elevation), 0, 2, true);
         sb.append("ft");
         if (name != null) {
             sb.append(", ");
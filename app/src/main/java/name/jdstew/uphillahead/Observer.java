@@ -197,7 +197,9 @@ public class Observer extends Thread implements OnCompleteListener<Location>, On
     @Override
     public void onSuccess(Location location) {
 //        Log.i(DEBUG_TAG, "Device location services update via onSuccess() from " + location.getProvider());
+        long startTime = System.nanoTime();
         graphView.onSuccess(location);
+        Instrumentation.LOCATION_TIME.record(System.nanoTime() - startTime);
     }
 
     @Override
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The PaceModel interface provides the pace of a hiker for a slope and elevation.  A PaceModel
+ * is not called per Edge; instead, it is compiled into a PaceTable when selected, so a model
+ * may be as costly to evaluate as it needs to be.  See the PaceModels class for the built-in
+ * models.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public interface PaceModel {
+
+    /**
+     * Returns the name of the model, as displayed in the settings.
+     *
+     * @return name of the model
+     */
+    String getName();
+
+    /**
+     * Calculates the pace of a hiker.  The pace may be discontinuous at a slope of zero (e.g.,
+     * a correction only applied to climbs); the PaceTable keeps both sides of zero.
+     *
+     * @param slope Slope of trail ahead, in the direction of travel (rise over run)
+     * @param elev  Elevation of hiker, in meters
+     * @return Pace of hiker, in kilometers per hour (km/hr)
+     */
+    double getPace(double slope, double elev);
+}
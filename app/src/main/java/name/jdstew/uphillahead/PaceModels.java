@@ -0,0 +1,209 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The PaceModels class provides the built-in PaceModel implementations (Tobler, Naismith and
+ * Langmuir), a user-tunable model, and the conversion of the pace model preferences into a
+ * PaceModel.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class PaceModels {
+
+    /**
+     * Pace of Naismith's rule on level ground, in km/hr
+     */
+    private static final double NAISMITH_FLAT_PACE = 5.0;
+    /**
+     * Meters climbed per hour, per Naismith's rule
+     */
+    private static final double NAISMITH_CLIMB_RATE = 600.0;
+    /**
+     * Langmuir's gentle descent, 5 to 12 degrees, as slope
+     */
+    private static final double LANGMUIR_GENTLE_DESCENT = -0.0875;
+    /**
+     * Langmuir's steep descent, more than 12 degrees, as slope
+     */
+    private static final double LANGMUIR_STEEP_DESCENT = -0.2126;
+    /**
+     * Hours per meter of descent that Langmuir subtracts (gentle) or adds (steep), or 10
+     * minutes per 300 meters
+     */
+    private static final double LANGMUIR_DESCENT_HOURS = 10.0 / 60.0 / 300.0;
+
+    /**
+     * The pace the app has always used, a variant of Tobler's hiking function, which is slowed
+     * on climbs by the percent of oxygen at elevation (see Calcs.getExactPace).
+     */
+    public static final PaceModel TOBLER = new PaceModel() {
+        @Override
+        public String getName() {
+            return Config.PACE_MODEL_TOBLER;
+        }
+
+        @Override
+        public double getPace(double slope, double elev) {
+            return Calcs.getExactPace(slope, elev);
+        }
+    };
+
+    /**
+     * Naismith's rule: 5 km/hr, plus one hour for every 600 meters of ascent.
+     */
+    public static final PaceModel NAISMITH = new PaceModel() {
+        @Override
+        public String getName() {
+            return Config.PACE_MODEL_NAISMITH;
+        }
+
+        @Override
+        public double getPace(double slope, double elev) {
+            return getPaceFromHours(1.0 / NAISMITH_FLAT_PACE + getClimbHours(slope, NAISMITH_CLIMB_RATE));
+        }
+    };
+
+    /**
+     * Langmuir's refinement of Naismith's rule: subtract 10 minutes per 300 meters of gentle
+     * descent (5 to 12 degrees), and add 10 minutes per 300 meters of steep descent (over 12
+     * degrees).
+     */
+    public static final PaceModel LANGMUIR = new PaceModel() {
+        @Override
+        public String getName() {
+            return Config.PACE_MODEL_LANGMUIR;
+        }
+
+        @Override
+        public double getPace(double slope, double elev) {
+            double hours = 1.0 / NAISMITH_FLAT_PACE + getClimbHours(slope, NAISMITH_CLIMB_RATE);
+            if (slope < LANGMUIR_STEEP_DESCENT) {
+                hours -= slope * 1_000.0 * LANGMUIR_DESCENT_HOURS;
+            } else if (slope <= LANGMUIR_GENTLE_DESCENT) {
+                hours += slope * 1_000.0 * LANGMUIR_DESCENT_HOURS;
+            }
+            return getPaceFromHours(hours);
+        }
+    };
+
+    private PaceModels() {
+        // static methods only
+    }
+
+    /**
+     * Returns the PaceModel for the pace model preferences.
+     *
+     * @param name of the model, see Config.PACE_MODEL_*
+     * @param customFlatPace level ground pace of the custom model, in tenths of km/hr
+     * @param customClimbRate meters climbed per hour of the custom model
+     * @param customAltitude where altitude slows the custom model, see Config.PACE_ALTITUDE_*
+     * @return the selected PaceModel
+     */
+    public static PaceModel getPaceModel(String name, int customFlatPace, int customClimbRate, String customAltitude) {
+        switch (name) {
+            case Config.PACE_MODEL_NAISMITH:
+                return NAISMITH;
+            case Config.PACE_MODEL_LANGMUIR:
+                return LANGMUIR;
+            case Config.PACE_MODEL_CUSTOM:
+                return new Custom(customFlatPace * Config.PACE_PREFS_MULTIPLIER, customClimbRate, customAltitude);
+            case Config.PACE_MODEL_TOBLER:
+            default:
+                return TOBLER;
+        }
+    }
+
+    /**
+     * Returns the hours to climb one kilometer of trail.
+     *
+     * @param slope Slope of trail ahead
+     * @param climbRate meters climbed per hour
+     * @return hours added per kilometer
+     */
+    private static double getClimbHours(double slope, double climbRate) {
+        return slope > 0.0 ? slope * 1_000.0 / climbRate : 0.0;
+    }
+
+    /**
+     * Returns the pace for the hours taken per kilometer.
+     *
+     * @param hours per kilometer
+     * @return pace, in km/hr
+     */
+    private static double getPaceFromHours(double hours) {
+        return 1.0 / hours;
+    }
+
+    /**
+     * The user-tunable model: Naismith's rule with the user's own level pace and climbing
+     * rate, and the same oxygen correction as Tobler's, applied to climbs, all slopes, or not
+     * at all.
+     */
+    static final class Custom implements PaceModel {
+        private final double flatPace;
+        private final double climbRate;
+        private final String altitude;
+
+        /**
+         * Creates a custom pace model
+         *
+         * @param flatPace level ground pace, in km/hr
+         * @param climbRate meters climbed per hour
+         * @param altitude where altitude slows the pace, see Config.PACE_ALTITUDE_*
+         */
+        Custom(double flatPace, double climbRate, String altitude) {
+            this.flatPace = flatPace;
+            this.climbRate = climbRate;
+            this.altitude = altitude;
+        }
+
+        @Override
+        public String getName() {
+            return Config.PACE_MODEL_CUSTOM;
+        }
+
+        @Override
+        public double getPace(double slope, double elev) {
+            double pace = getPaceFromHours(1.0 / flatPace + getClimbHours(slope, climbRate));
+            switch (altitude) {
+                case Config.PACE_ALTITUDE_ALL:
+                    return Calcs.getPaceAtElev(pace, elev, 1.0); // any positive slope applies it
+                case Config.PACE_ALTITUDE_NONE:
+                    return pace;
+                case Config.PACE_ALTITUDE_CLIMBS:
+                default:
+                    return Calcs.getPaceAtElev(pace, elev, slope);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Custom)) {
+                return false;
+            }
+            Custom other = (Custom) o;
+            return flatPace == other.flatPace && climbRate == other.climbRate && altitude.equals(other.altitude);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Double.hashCode(flatPace) * 31 + Double.hashCode(climbRate)) * 31 + altitude.hashCode();
+        }
+    }
+}
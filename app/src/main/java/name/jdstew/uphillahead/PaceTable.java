@@ -0,0 +1,244 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The PaceTable class provides a precomputed, bilinear interpolated lookup table of hiker pace
+ * over a bounded grid of slopes and elevations, so that the pace of each Edge is found with a
+ * few array reads rather than calls to Math.exp().  Each PaceModel is compiled into such a
+ * table when it is selected, so a change of model adds no cost per Edge.
+ *
+ * The slope grid is split into a descending half [-1.0, 0.0] and an ascending half [0.0, 1.0],
+ * each holding its own value at a slope of zero, because the pace is not continuous there (the
+ * oxygen correction applies only when climbing).  The grid also includes a slope of -0.05,
+ * where Tobler's function peaks.  With a slope step of 0.01 and an elevation step of 100 m,
+ * the relative error of linear interpolation of exp(-k * x) is at most (k * step)^2 / 8, or
+ * 1.6e-4 for slope (k = 3.5) and 1.3e-5 for elevation (k = 0.0001).  Therefore the Tobler
+ * table is guaranteed to be within MAX_RELATIVE_ERROR of Calcs.getExactPace().  Other models
+ * report their error, measured when compiled, from getMaxRelativeError().  A slope step that
+ * interpolates worse than STEP_RELATIVE_ERROR (e.g., across Langmuir's steps at 5 and 12
+ * degrees of descent) is computed exactly by the model, as are slopes or elevations outside
+ * of the grid.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class PaceTable {
+
+    /**
+     * Guaranteed maximum relative error of the Tobler table, compared to the exact pace.
+     */
+    public static final double MAX_RELATIVE_ERROR = 2.0e-4;
+
+    /**
+     * Largest relative error of a slope step before the step is computed exactly by the model
+     */
+    public static final double STEP_RELATIVE_ERROR = 0.01;
+
+    /**
+     * Minimum slope within the table
+     */
+    public static final double SLOPE_MIN = -1.0;
+    /**
+     * Maximum slope within the table
+     */
+    public static final double SLOPE_MAX = 1.0;
+    /**
+     * Slope step between table rows
+     */
+    public static final double SLOPE_STEP = 0.01;
+    /**
+     * Minimum elevation within the table, in meters
+     */
+    public static final double ELEV_MIN = 0.0;
+    /**
+     * Maximum elevation within the table, in meters (Mount Whitney is 4,421 m)
+     */
+    public static final double ELEV_MAX = 4_500.0;
+    /**
+     * Elevation step between table columns, in meters
+     */
+    public static final double ELEV_STEP = 100.0;
+
+    private static final int HALF_ROWS = (int) Math.round(SLOPE_MAX / SLOPE_STEP) + 1; // includes zero
+    private static final int ROWS = HALF_ROWS * 2;
+    private static final int COLUMNS = (int) Math.round((ELEV_MAX - ELEV_MIN) / ELEV_STEP) + 1;
+    private static final double SLOPE_SCALE = 1.0 / SLOPE_STEP;
+    private static final double ELEV_SCALE = 1.0 / ELEV_STEP;
+
+    private static volatile PaceTable currentTable;
+
+    private final PaceModel model;
+    private final double[] paces; // row-major, [row * COLUMNS + column]
+    private final boolean[] exactRows; // slope steps computed by the model, indexed by lower row
+    private final double maxRelativeError;
+
+    /**
+     * Compiles a PaceModel into a table.
+     *
+     * @param model the PaceModel to compile
+     */
+    public PaceTable(PaceModel model) {
+        this.model = model;
+
+        paces = new double[ROWS * COLUMNS];
+        exactRows = new boolean[ROWS];
+        for (int row = 0; row < ROWS; ++row) {
+            double slope = getRowSlope(row);
+            for (int column = 0; column < COLUMNS; ++column) {
+                paces[row * COLUMNS + column] = model.getPace(slope, ELEV_MIN + column * ELEV_STEP);
+            }
+        }
+
+        maxRelativeError = measureMaxRelativeError();
+    }
+
+    /**
+     * Returns the pace table of the selected PaceModel, compiling the Tobler model upon first
+     * use if no model was selected.
+     *
+     * @return the current pace table
+     */
+    public static PaceTable getCurrent() {
+        PaceTable table = currentTable;
+        if (table == null) {
+            synchronized (PaceTable.class) {
+                if (currentTable == null) {
+                    currentTable = new PaceTable(PaceModels.TOBLER);
+                }
+                table = currentTable;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Compiles and publishes the table of a PaceModel, unless that model is already current.
+     *
+     * @param model the PaceModel to select
+     * @return true if the current table changed
+     */
+    public static synchronized boolean select(PaceModel model) {
+        if (currentTable != null && currentTable.getModel().equals(model)) {
+            return false;
+        }
+        currentTable = new PaceTable(model);
+        return true;
+    }
+
+    /**
+     * Returns the PaceModel compiled into this table.
+     *
+     * @return the PaceModel
+     */
+    public PaceModel getModel() {
+        return model;
+    }
+
+    /**
+     * Calculates hiker pace at slope and elevation, from the table.
+     *
+     * @param slope Slope of trail ahead
+     * @param elev  Elevation of hiker, in meters
+     * @return Pace of hiker, in kilometers per hour (km/hr)
+     */
+    public double getPace(double slope, double elev) {
+        // note: written to also send NaN values to the exact calculation
+        if (!(slope >= SLOPE_MIN && slope <= SLOPE_MAX && elev >= ELEV_MIN && elev <= ELEV_MAX)) {
+            return model.getPace(slope, elev);
+        }
+
+        double rowPos;
+        int rowLast;
+        if (slope > 0.0) {
+            rowPos = HALF_ROWS + slope * SLOPE_SCALE;
+            rowLast = ROWS - 1;
+        } else {
+            rowPos = (slope - SLOPE_MIN) * SLOPE_SCALE;
+            rowLast = HALF_ROWS - 1;
+        }
+        int row = Math.min((int) rowPos, rowLast - 1);
+        if (exactRows[row]) {
+            return model.getPace(slope, elev);
+        }
+        double rowT = rowPos - row;
+
+        double columnPos = (elev - ELEV_MIN) * ELEV_SCALE;
+        int column = Math.min((int) columnPos, COLUMNS - 2);
+        double columnT = columnPos - column;
+
+        int i = row * COLUMNS + column;
+        double p00 = paces[i];
+        double p01 = paces[i + 1];
+        double p10 = paces[i + COLUMNS];
+        double p11 = paces[i + COLUMNS + 1];
+
+        double p0 = p00 + (p01 - p00) * columnT;
+        double p1 = p10 + (p11 - p10) * columnT;
+        return p0 + (p1 - p0) * rowT;
+    }
+
+    /**
+     * Returns the largest relative error of this table, measured at the center of every cell
+     * (where linear interpolation error is greatest) when the table was built, excluding the
+     * slope steps computed exactly.
+     *
+     * @return measured maximum relative error
+     */
+    public double getMaxRelativeError() {
+        return maxRelativeError;
+    }
+
+    /**
+     * Measures the error of each slope step, marking those to be computed exactly.
+     */
+    private double measureMaxRelativeError() {
+        double maxError = 0.0;
+        for (int row = 0; row < ROWS - 1; ++row) {
+            if (row == HALF_ROWS - 1) {
+                continue; // not a cell, but the break between the two halves
+            }
+            double slope = (getRowSlope(row) + getRowSlope(row + 1)) / 2.0;
+            double rowError = 0.0;
+            for (int column = 0; column < COLUMNS - 1; ++column) {
+                double elev = ELEV_MIN + (column + 0.5) * ELEV_STEP;
+                double exact = model.getPace(slope, elev);
+                rowError = Math.max(rowError, Math.abs(getPace(slope, elev) - exact) / exact);
+            }
+            if (rowError > STEP_RELATIVE_ERROR) {
+                exactRows[row] = true;
+            } else {
+                maxError = Math.max(maxError, rowError);
+            }
+        }
+        return maxError;
+    }
+
+    /**
+     * Returns the slope of a table row, where the first row of the ascending half holds the
+     * smallest positive slope (i.e., the limit of the pace as slope approaches zero from above).
+     */
+    private static double getRowSlope(int row) {
+        if (row < HALF_ROWS) {
+            return SLOPE_MIN + row * SLOPE_STEP;
+        } else if (row == HALF_ROWS) {
+            return Double.MIN_VALUE;
+        } else {
+            return (row - HALF_ROWS) * SLOPE_STEP;
+        }
+    }
+}
@@ -108,7 +108,7 @@ public class PctGpxLoader {
     public static void main(String[] args) {
 //		PctGpxLoader.processTestTrack();
       PctGpxLoader.loadPctGpxFiles();
-//		GraphManager.getInstance().exportHTML(GRAPH_DIRECTORY);
+//		GraphManager.getInstance().exportProfiles(GRAPH_DIRECTORY);
 		GraphManager.getInstance().saveGraphs();
 //		GraphManager.getInstance().clearGraphs();
 //		GraphManager.getInstance().loadGraphs();
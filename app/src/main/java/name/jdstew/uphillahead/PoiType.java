@@ -0,0 +1,77 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import java.util.Locale;
+
+/**
+ * The PoiType class provides the type codes of a Node as a point of interest (POI), and the
+ * classification of a waypoint into one, which is done once as a Graph is loaded (see
+ * Graph.buildColumns()) rather than on every frame.
+ *
+ * A waypoint is a POI if it has a description.  Its type is taken from Halfmile's waypoint
+ * codes within its name (WA or WR for water, CS for a campsite, e.g., "WACS0520" is water),
+ * otherwise from its GPX symbol, otherwise it is information.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class PoiType {
+
+    static final byte NONE = 0;
+    static final byte WATER = 1; // drawn below its Node
+    static final byte CAMP = 2;
+    static final byte INFO = 3;
+    static final int COUNT = 4; // for arrays indexed by type
+
+    private PoiType() {
+        // static methods only
+    }
+
+    /**
+     * Returns the type of a waypoint.
+     *
+     * @param name of the waypoint, or null
+     * @param description of the waypoint, or null
+     * @param symbol GPX sym of the waypoint, or null
+     * @return type code, NONE if not a point of interest
+     */
+    static byte classify(String name, String description, String symbol) {
+        if (description == null) {
+            return NONE;
+        }
+
+        if (name != null) {
+            if (name.contains("WA") || name.contains("WR")) {
+                return WATER;
+            } else if (name.contains("CS")) {
+                return CAMP;
+            }
+        }
+
+        if (symbol != null) {
+            String sym = symbol.toLowerCase(Locale.ROOT);
+            if (sym.contains("water")) { // e.g., Drinking Water, Water Source
+                return WATER;
+            } else if (sym.contains("camp")) { // e.g., Campground, Campsite
+                return CAMP;
+            }
+        }
+
+        return name != null || symbol != null ? INFO : NONE;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.SeekBar;
+
+import androidx.preference.PreferenceViewHolder;
+import androidx.preference.SeekBarPreference;
+
+/**
+ * The PreviewSeekBarPreference class is a SeekBarPreference whose value is previewed while its
+ * slider is dragged (see setOnPreviewListener()), and persisted only once it is released, so a
+ * drag is written to the preferences (and so read by the GraphView) once, rather than for each
+ * of its steps.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class PreviewSeekBarPreference extends SeekBarPreference {
+
+    /**
+     * The OnPreviewListener interface receives the values of the slider while it is dragged.
+     */
+    public interface OnPreviewListener {
+        /**
+         * Previews a value, before it is persisted.
+         *
+         * @param value of the slider
+         */
+        void onPreview(int value);
+    }
+
+    private OnPreviewListener onPreviewListener;
+
+    /**
+     * Creates the preference, inflated from the preferences' XML resource.
+     *
+     * @param context of the Settings Activity
+     * @param attrs of the preference
+     */
+    public PreviewSeekBarPreference(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Sets the listener of the values previewed while the slider is dragged.
+     *
+     * @param onPreviewListener the listener, or null
+     */
+    public void setOnPreviewListener(OnPreviewListener onPreviewListener) {
+        this.onPreviewListener = onPreviewListener;
+    }
+
+    @Override
+    public void onBindViewHolder(PreferenceViewHolder holder) {
+        super.onBindViewHolder(holder);
+        SeekBar seekBar = (SeekBar) holder.findViewById(androidx.preference.R.id.seekbar);
+        if (seekBar == null) {
+            return;
+        }
+
+        // replaces the SeekBarPreference's listener, which persists each step of a drag
+        seekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            private boolean isTracking;
+
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (!fromUser) {
+                    return;
+                }
+                if (isTracking) {
+                    preview(progress + getMin());
+                } else {
+                    persist(seekBar); // e.g., a key press
+                }
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {
+                isTracking = true;
+            }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                isTracking = false;
+                persist(seekBar);
+            }
+        });
+    }
+
+    private void persist(SeekBar seekBar) {
+        int value = seekBar.getProgress() + getMin();
+        if (value != getValue()) {
+            if (callChangeListener(value)) {
+                setValue(value);
+            } else {
+                seekBar.setProgress(getValue() - getMin());
+                preview(getValue());
+            }
+        }
+    }
+
+    private void preview(int value) {
+        OnPreviewListener l = onPreviewListener;
+        if (l != null) {
+            l.onPreview(value);
+        }
+    }
+}
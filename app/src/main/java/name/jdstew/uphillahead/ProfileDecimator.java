@@ -0,0 +1,180 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The ProfileDecimator class reduces the points of the GraphView's profile to at most four per
+ * pixel column: the points where the profile enters the column, reaches its highest and lowest
+ * elevations, and exits the column, in the order they occur.  This is the min-max envelope
+ * used to draw waveforms: the decimated line is drawn over exactly the same pixels, however
+ * many Edges fall within one column, so the number of vertices is bounded by 4 times the
+ * width, at any zoom.
+ *
+ * Points must be added from left to right.  They may be in pixels, or in other units (e.g.,
+ * meters) with the width of a column given, see reset(float).  The vertex buffer is reused
+ * from frame to frame, growing as needed, and is used only by the render thread.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class ProfileDecimator {
+
+    private static final int INITIAL_CAPACITY = 2 * 4 * 1_024; // values, x and y per vertex
+
+    private float[] vertices = new float[INITIAL_CAPACITY];
+    private int vertexCount;
+
+    // the current pixel column, and its points with their order of arrival
+    private float columnWidth = 1.0f; // in the units of the points
+    private boolean hasColumn;
+    private int column;
+    private int sequence;
+    private float entryX, entryY;
+    private int entrySequence;
+    private float minX, minY; // minimum y, which is the highest elevation
+    private int minSequence;
+    private float maxX, maxY;
+    private int maxSequence;
+    private float exitX, exitY;
+    private int exitSequence;
+
+    /**
+     * Removes all of the points and vertices, keeping the vertex buffer.
+     */
+    void reset() {
+        reset(1.0f);
+    }
+
+    /**
+     * Removes all of the points and vertices, keeping the vertex buffer, for points in units
+     * other than pixels.
+     *
+     * @param columnWidth width of a pixel column, in the units of the points
+     */
+    void reset(float columnWidth) {
+        this.columnWidth = columnWidth;
+        vertexCount = 0;
+        hasColumn = false;
+    }
+
+    /**
+     * Adds the next point of the profile, to the right of (or in the same column as) the last.
+     *
+     * @param x horizontal position, in pixels (or see reset(float))
+     * @param y vertical position, in pixels (or likewise)
+     */
+    void add(float x, float y) {
+        int pointColumn = (int) Math.floor(x / columnWidth);
+        if (!hasColumn || pointColumn != column) {
+            if (hasColumn) {
+                emitColumn();
+            }
+            hasColumn = true;
+            column = pointColumn;
+            sequence = 0;
+            entryX = minX = maxX = exitX = x;
+            entryY = minY = maxY = exitY = y;
+            entrySequence = minSequence = maxSequence = exitSequence = 0;
+            return;
+        }
+
+        ++sequence;
+        if (y < minY) {
+            minX = x;
+            minY = y;
+            minSequence = sequence;
+        }
+        if (y > maxY) {
+            maxX = x;
+            maxY = y;
+            maxSequence = sequence;
+        }
+        exitX = x;
+        exitY = y;
+        exitSequence = sequence;
+    }
+
+    /**
+     * Emits the vertices of the last column, after the last point is added.
+     */
+    void finish() {
+        if (hasColumn) {
+            emitColumn();
+            hasColumn = false;
+        }
+    }
+
+    private void emitColumn() {
+        emit(entryX, entryY);
+        if (minSequence < maxSequence) {
+            emitInner(minX, minY, minSequence);
+            emitInner(maxX, maxY, maxSequence);
+        } else {
+            emitInner(maxX, maxY, maxSequence);
+            emitInner(minX, minY, minSequence);
+        }
+        if (exitSequence != entrySequence) {
+            emit(exitX, exitY);
+        }
+    }
+
+    private void emitInner(float x, float y, int pointSequence) {
+        if (pointSequence != entrySequence && pointSequence != exitSequence) {
+            emit(x, y);
+        }
+    }
+
+    private void emit(float x, float y) {
+        if (vertexCount * 2 + 2 > vertices.length) {
+            float[] grown = new float[vertices.length * 2];
+            System.arraycopy(vertices, 0, grown, 0, vertexCount * 2);
+            vertices = grown;
+        }
+        vertices[vertexCount * 2] = x;
+        vertices[vertexCount * 2 + 1] = y;
+        ++vertexCount;
+    }
+
+    /**
+     * Gets the number of vertices emitted.
+     *
+     * @return number of vertices
+     */
+    int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Gets the horizontal position of a vertex.
+     *
+     * @param vertex index of the vertex
+     * @return position, in pixels
+     */
+    float getX(int vertex) {
+        return vertices[vertex * 2];
+    }
+
+    /**
+     * Gets the vertical position of a vertex.
+     *
+     * @param vertex index of the vertex
+     * @return position, in pixels
+     */
+    float getY(int vertex) {
+        return vertices[vertex * 2 + 1];
+    }
+}
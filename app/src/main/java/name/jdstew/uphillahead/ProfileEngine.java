@@ -0,0 +1,426 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The ProfileEngine class computes the geometry of the GraphView's profile, ahead of the
+ * observer in the direction of travel: the decimated vertices of the surface, the difficulty
+ * bands and the laid out water, camp and information icons, held in primitive arrays, and
+ * the readout of a touch point.  The GraphView only draws them, so the engine uses no Android
+ * classes and may be tested (or benchmarked) on a plain JVM, and run on any thread.
+ *
+ * The surface and icons are walked in meters from the observer, across the level of detail
+ * of the zoom (see FrameRequest.getLevelOfDetail()), so they are walked again only when the
+ * observer or the level of detail changes.  The walked surface is decimated into the pixel
+ * columns of the view (see getGeometry()) only when the zoom or the width changes, which is
+ * cheap compared with a walk.  The zoom and the vertical exaggeration are a scale of the
+ * geometry (see getHoriScale() and getVertScale()), applied when drawn, and the bands and
+ * icons are placed in pixels for each computation.
+ *
+ * The arrays are reused from one computation to the next, so an engine must be used by one
+ * thread at a time.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class ProfileEngine {
+
+    private static final int INITIAL_BAND_CAPACITY = 64;
+    private static final int INITIAL_WALK_CAPACITY = 2 * 4 * 1_024; // values, x and y per point
+
+    private final ProfileDecimator geometry = new ProfileDecimator(); // meters, decimated by the zoom
+    private final ProfileReadout readout = new ProfileReadout();
+    private final IconIndex icons = new IconIndex();
+    private final int[] viewport = new int[2]; // see Graph.getViewport()
+    private final double[] observerValues = new double[Graph.CUMULATIVE_COUNT]; // see Graph.getCumulativeValues()
+
+    private float[] bandStarts = new float[INITIAL_BAND_CAPACITY]; // pixels
+    private float[] bandEnds = new float[INITIAL_BAND_CAPACITY]; // pixels
+    private byte[] bandDifficulties = new byte[INITIAL_BAND_CAPACITY];
+    private int bandCount;
+
+    private float[] walkPoints = new float[INITIAL_WALK_CAPACITY]; // the walked surface, in meters
+    private int walkCount; // values (2 per point) in walkPoints
+
+    // key of the walked geometry
+    private TrailMatch geometryMatch;
+    private double geometryLevel;
+    private double geometryEnd; // meters
+
+    // key of the decimated geometry
+    private int geometryWidth;
+    private double geometryZoom; // meters
+    private int geometryVersion;
+
+    private double horiScale;
+    private double vertScale;
+    private float startingY;
+    private float endX;
+    private int edgesWalked;
+
+    /**
+     * Computes the profile of a matched observer's view.  The observer is drawn at the left
+     * edge, at the height given by the vertical bias, and the profile extends to the right
+     * edge (or the end of the trail).
+     *
+     * @param match the observer's location matched to the Graph, on trail
+     * @param width of the view, in pixels
+     * @param height of the view, in pixels
+     * @param zoomDist distance displayed across the width of the view, in meters
+     * @param vertBias vertical bias of the view, see Config.VERTICAL_BIAS_*
+     * @param vertExag vertical exaggeration
+     * @param paceBias pace multiplier of the user
+     * @param iconSize size of a drawn icon, in pixels, see IconIndex.layout()
+     */
+    void compute(TrailMatch match, int width, int height, double zoomDist, double vertBias,
+                 double vertExag, double paceBias, int iconSize) {
+        Graph graph = match.getGraph();
+        boolean isDirectionToEnd = match.isDirectionToEnd();
+        double observerDist = match.getEntryDistance();
+
+        double levelDist = FrameRequest.getLevelOfDetail(zoomDist);
+        if (match != geometryMatch || levelDist != geometryLevel) {
+            walk(match, levelDist);
+            decimate(width, zoomDist);
+        } else {
+            edgesWalked = 0;
+            if (zoomDist != geometryZoom || width != geometryWidth) {
+                decimate(width, zoomDist);
+            }
+        }
+        bandCount = 0;
+
+        // compute scale of graph to display View
+        horiScale = (double)width / zoomDist; // equals number of pixels per meter
+        vertScale = horiScale * vertExag; // equals number of pixel per meter by exaggeration
+
+        // initialize starting position on screen
+        startingY = (float) ((double)height / 2.0 * (1.0 + vertBias));
+        endX = (float) (geometryEnd * horiScale);
+
+        // a touch point is read out from the Graph's cumulative values, rather than the walk
+        // (the geometry of the level of detail may extend past the view)
+        readout.set(graph, isDirectionToEnd, observerDist, horiScale, paceBias, Math.min(endX, width));
+
+        // once per view, rather than per frame, so drawing and touches share the layout; the
+        // icons are timed as the readout is, from the Graph's current pace model
+        double observerHours = 0.0; // at the end of the trail, there are no icons
+        if (!Double.isNaN(observerDist)) {
+            graph.getCumulativeValues(observerDist, observerValues);
+            observerHours = observerValues[isDirectionToEnd ? Graph.CUMULATIVE_HOURS_TO_END : Graph.CUMULATIVE_HOURS_TO_START];
+        }
+        icons.place(graph, isDirectionToEnd, observerHours, width, horiScale, vertScale, startingY, paceBias);
+        icons.layout(iconSize);
+
+        if (!Double.isNaN(observerDist)) { // otherwise, at the end of the trail
+            computeBands(graph.getDifficultyBands(isDirectionToEnd), isDirectionToEnd, observerDist, zoomDist, horiScale);
+        }
+    }
+
+    /**
+     * Walks the Edges from the observer across a level of detail, adding the surface and the
+     * icons in meters from the observer.  The surface is decimated afterward, see decimate().
+     */
+    private void walk(TrailMatch match, double levelDist) {
+        Graph graph = match.getGraph();
+        boolean isDirectionToEnd = match.isDirectionToEnd();
+
+        icons.clear();
+        walkCount = 0;
+
+        double along = 0.0; // meters
+        double rise = 0.0; // meters
+
+        double cumDist = 0.0;
+        double cumGain = 0.0;
+        double cumLoss = 0.0;
+
+        addPoint((float) along, (float) rise);
+
+        // resolve the Node at the far edge of the level, rather than walking until past it
+        double observerDist = match.getEntryDistance();
+        Node lastNode = null; // the end of the trail
+        if (!Double.isNaN(observerDist)) {
+            if (isDirectionToEnd) {
+                graph.getViewport(observerDist, observerDist + levelDist, viewport);
+                lastNode = graph.getNode(viewport[1]);
+            } else {
+                graph.getViewport(observerDist - levelDist, observerDist, viewport);
+                lastNode = graph.getNode(viewport[0]);
+            }
+        }
+
+        Node cursorNode = match.getObserverNode();
+        edgesWalked = 0;
+        while (cursorNode != null && cursorNode != lastNode) {
+            ++edgesWalked;
+
+            Edge edge;
+            if (isDirectionToEnd) { // direction forward
+                edge = cursorNode.getNextEdge();
+                if (edge == null) {
+                    break; // however, this shouldn't happen
+                }
+
+                if (edge.getVerticalDistance() > 0.0) {
+                    cumGain += edge.getVerticalDistance();
+                } else {
+                    cumLoss += edge.getVerticalDistance();
+                }
+            } else {
+                edge = cursorNode.getPrevEdge();
+                if (edge == null) {
+                    break; // however, this shouldn't happen
+                }
+
+                if (edge.getVerticalDistance() > 0.0) {
+                    cumLoss -= edge.getVerticalDistance();
+                } else {
+                    cumGain -= edge.getVerticalDistance();
+                }
+            }
+
+            // plot by distance change formula
+            along += edge.getHorizontalDistance();
+
+            // plot by elevation change formula
+            if (isDirectionToEnd) {
+                rise += edge.getVerticalDistance();
+            } else {
+                rise -= edge.getVerticalDistance();
+            }
+            addPoint((float) along, (float) rise);
+
+            // cumulative distance, the time read from the Graph by IconIndex.place()
+            cumDist += edge.getDistance(); // meters
+
+            if (isDirectionToEnd) { // direction forward
+                cursorNode = edge.getNextNode();
+            } else {
+                cursorNode = edge.getPrevNode();
+            }
+
+            // Is the node a source of water, campsite, or information? (classified as loaded)
+            byte poiType = cursorNode.getPoiType();
+            if (poiType != PoiType.NONE) {
+                icons.add(cursorNode, poiType, along, rise, cumDist, cumGain, cumLoss);
+            }
+        }
+
+        geometryMatch = match;
+        geometryLevel = levelDist;
+        geometryEnd = along;
+    }
+
+    private void addPoint(float x, float y) {
+        if (walkCount + 2 > walkPoints.length) {
+            float[] grown = new float[walkPoints.length * 2];
+            System.arraycopy(walkPoints, 0, grown, 0, walkCount);
+            walkPoints = grown;
+        }
+        walkPoints[walkCount++] = x;
+        walkPoints[walkCount++] = y;
+    }
+
+    /**
+     * Decimates the walked surface within the view into the pixel columns of the zoom, so
+     * there are at most 4 vertices per displayed pixel column.  The walk ends a level of detail
+     * ahead, up to twice the zoom, so the surface beyond the view is left out, but for its first
+     * point, which the surface is drawn toward at the right edge.
+     */
+    private void decimate(int width, double zoomDist) {
+        geometry.reset((float) (zoomDist / width));
+        for (int i = 0; i < walkCount; i += 2) {
+            geometry.add(walkPoints[i], walkPoints[i + 1]);
+            if (walkPoints[i] >= zoomDist) {
+                break;
+            }
+        }
+        geometry.finish();
+
+        geometryWidth = width;
+        geometryZoom = zoomDist;
+        ++geometryVersion;
+    }
+
+    /**
+     * Computes one band for each run of Edges of the same difficulty within the view, rather
+     * than one for each Edge.
+     */
+    private void computeBands(DifficultyBands bands, boolean isDirectionToEnd, double observerDist,
+                              double viewDist, double horiScale) {
+        double minDist = isDirectionToEnd ? observerDist : observerDist - viewDist;
+        double maxDist = isDirectionToEnd ? observerDist + viewDist : observerDist;
+        for (int run = bands.getFirstRunEndingAfter(minDist); run < bands.getCount() && bands.getStart(run) < maxDist; ++run) {
+            double runStartX, runEndX;
+            if (isDirectionToEnd) {
+                runStartX = (Math.max(bands.getStart(run), minDist) - observerDist) * horiScale;
+                runEndX = (Math.min(bands.getEnd(run), maxDist) - observerDist) * horiScale;
+            } else {
+                runStartX = (observerDist - Math.min(bands.getEnd(run), maxDist)) * horiScale;
+                runEndX = (observerDist - Math.max(bands.getStart(run), minDist)) * horiScale;
+            }
+            addBand((float) runStartX, (float) runEndX, bands.getDifficulty(run));
+        }
+    }
+
+    private void addBand(float start, float end, byte difficulty) {
+        if (bandCount == bandStarts.length) {
+            int capacity = bandCount * 2;
+            float[] grownStarts = new float[capacity];
+            System.arraycopy(bandStarts, 0, grownStarts, 0, bandCount);
+            bandStarts = grownStarts;
+            float[] grownEnds = new float[capacity];
+            System.arraycopy(bandEnds, 0, grownEnds, 0, bandCount);
+            bandEnds = grownEnds;
+            byte[] grownDifficulties = new byte[capacity];
+            System.arraycopy(bandDifficulties, 0, grownDifficulties, 0, bandCount);
+            bandDifficulties = grownDifficulties;
+        }
+        bandStarts[bandCount] = start;
+        bandEnds[bandCount] = end;
+        bandDifficulties[bandCount] = difficulty;
+        ++bandCount;
+    }
+
+    /**
+     * Gets the decimated vertices of the surface within the view, from left to right, in
+     * meters from the observer: horizontally ahead, and vertically above.  There are at most 4
+     * vertices per pixel column, and so at most 4 times the width (plus 4), at any zoom.  Drawn by scaling it by
+     * getHoriScale() and getVertScale() (negated, as pixels increase downward), then
+     * translating it down to getStartingY().
+     *
+     * @return the vertices
+     */
+    ProfileDecimator getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Gets the version of the geometry, which changes each time it is decimated again (i.e.,
+     * walked again, or zoomed), so a drawing of it (e.g., a Path) may be kept until then.
+     *
+     * @return the version
+     */
+    int getGeometryVersion() {
+        return geometryVersion;
+    }
+
+    /**
+     * Gets the horizontal scale of the view.
+     *
+     * @return pixels per meter
+     */
+    double getHoriScale() {
+        return horiScale;
+    }
+
+    /**
+     * Gets the vertical scale of the view, i.e., the horizontal scale by the exaggeration.
+     *
+     * @return pixels per meter
+     */
+    double getVertScale() {
+        return vertScale;
+    }
+
+    /**
+     * Gets the readout of a touch point within the profile.
+     *
+     * @return the readout
+     */
+    ProfileReadout getReadout() {
+        return readout;
+    }
+
+    /**
+     * Gets the water, camp and information icons of the profile.
+     *
+     * @return the icons
+     */
+    IconIndex getIcons() {
+        return icons;
+    }
+
+    /**
+     * Gets the number of difficulty bands.
+     *
+     * @return number of bands
+     */
+    int getBandCount() {
+        return bandCount;
+    }
+
+    /**
+     * Gets the left edge of a difficulty band.
+     *
+     * @param band index of the band
+     * @return horizontal position, in pixels
+     */
+    float getBandStart(int band) {
+        return bandStarts[band];
+    }
+
+    /**
+     * Gets the right edge of a difficulty band.
+     *
+     * @param band index of the band
+     * @return horizontal position, in pixels
+     */
+    float getBandEnd(int band) {
+        return bandEnds[band];
+    }
+
+    /**
+     * Gets the difficulty of a band.
+     *
+     * @param band index of the band
+     * @return see DifficultyBands.EASY, MEDIUM or HARD
+     */
+    byte getBandDifficulty(int band) {
+        return bandDifficulties[band];
+    }
+
+    /**
+     * Gets the vertical position of the observer (and the level line).
+     *
+     * @return position, in pixels
+     */
+    float getStartingY() {
+        return startingY;
+    }
+
+    /**
+     * Gets the horizontal position of the last Node of the geometry, which is within the view
+     * only at (or near) the end of the trail.
+     *
+     * @return position, in pixels
+     */
+    float getEndX() {
+        return endX;
+    }
+
+    /**
+     * Gets the number of Edges walked to compute the profile, zero when the geometry was
+     * kept from the previous computation.
+     *
+     * @return number of Edges
+     */
+    int getEdgesWalked() {
+        return edgesWalked;
+    }
+}
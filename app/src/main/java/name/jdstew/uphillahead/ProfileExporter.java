@@ -0,0 +1,599 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The ProfileExporter class renders the whole profile of Graphs (e.g., every section of the
+ * trail), with their difficulty bands and points of interest, as SVG and PNG files.  It uses
+ * no Android classes, so an atlas of the trail is regenerated on a plain JVM, see
+ * GraphManager.exportProfiles().
+ *
+ * Each Graph is exported by a task of a ForkJoinPool, and each of the pool's threads reuses
+ * its own Worker (whose native Deflater is freed once the pool is done): the profile is decimated to at most four vertices per pixel column (see the
+ * ProfileDecimator class) and laid out into per-column arrays once, then both files are
+ * streamed through the Worker's output buffer.  The SVG's numbers are formatted directly into
+ * the buffer, and the PNG's rows are rasterized one at a time and deflated into IDAT chunks of
+ * the buffer's size, so neither file is held in memory.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class ProfileExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1_024; // bytes, of each Worker's output buffer
+    private static final int MARGIN = 8; // pixels, above and below the profile
+    private static final int POI_RADIUS = 4; // pixels
+
+    // colors, as RGB, of the app's light theme (see colors.xml)
+    private static final int COLOR_BACKGROUND = 0xffffff; // white
+    private static final int COLOR_EARTH = 0xc3b091; // khaki
+    private static final int COLOR_SURFACE = 0x000000; // black
+    private static final int[] BAND_COLORS = {0x7fff7f, 0xffff7f, 0xff7f7f}; // indexed by DifficultyBands.EASY, MEDIUM and HARD
+    private static final int[] POI_COLORS = {0x000000, 0x5089b4, 0x509363, 0xdc8132}; // indexed by PoiType
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] PNG_IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] PNG_IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] PNG_IEND = {'I', 'E', 'N', 'D'};
+
+    private final int width;
+    private final int height;
+    private final double vertExag;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * Creates an exporter of profiles of a size.  The profile spans the width, and is
+     * exaggerated vertically, but no more than fits within the height.
+     *
+     * @param width of each profile, in pixels
+     * @param height of each profile, in pixels
+     * @param vertExag vertical exaggeration, see Config.EXAGGERATION_DEFAULT
+     */
+    public ProfileExporter(int width, int height, double vertExag) {
+        this.width = width;
+        this.height = height;
+        this.vertExag = vertExag;
+    }
+
+    /**
+     * Exports the profiles of Graphs into a folder, as "name.svg" and "name.png", in parallel
+     * on a ForkJoinPool of a thread per processor.  Every Graph is attempted, even if another
+     * fails.
+     *
+     * @param graphs the Graphs to export
+     * @param folder an existing folder, whose files of the same names are replaced
+     * @return number of Graphs exported, which is all of them
+     * @throws IOException naming the Graphs that could not be exported, with the failure of
+     *                     each suppressed by it, or if interrupted
+     */
+    public int exportAll(List<Graph> graphs, File folder) throws IOException {
+        ConcurrentLinkedQueue<Worker> poolWorkers = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Worker> poolWorker = ThreadLocal.withInitial(() -> {
+            Worker worker = new Worker();
+            poolWorkers.add(worker);
+            return worker;
+        });
+        List<Callable<Void>> tasks = new ArrayList<>(graphs.size());
+        for (Graph graph : graphs) {
+            tasks.add(() -> {
+                export(graph, folder, poolWorker.get());
+                return null;
+            });
+        }
+
+        int exportedCount = 0;
+        StringBuilder failedNames = new StringBuilder();
+        List<Throwable> failures = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<Void>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); ++i) {
+                try {
+                    results.get(i).get();
+                    ++exportedCount;
+                } catch (ExecutionException ee) {
+                    failedNames.append(failedNames.length() == 0 ? "" : ", ").append(graphs.get(i).getName());
+                    failures.add(ee.getCause());
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while exporting profiles", ie);
+        } finally {
+            pool.shutdown();
+            for (Worker worker : poolWorkers) {
+                worker.end();
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            IOException ioe = new IOException("unable to export the profiles of " + failedNames);
+            failures.forEach(ioe::addSuppressed);
+            throw ioe;
+        }
+        return exportedCount;
+    }
+
+    /**
+     * Exports the profile of a Graph into a folder, on the calling thread.
+     *
+     * @param graph the Graph to export
+     * @param folder an existing folder
+     * @param worker of the calling thread
+     * @throws IOException if unable to write either file
+     */
+    private void export(Graph graph, File folder, Worker worker) throws IOException {
+        worker.layout(graph);
+        String fileName = getFileName(graph);
+        try (OutputStream out = new FileOutputStream(new File(folder, fileName + ".svg"))) {
+            worker.writeSvg(graph, out);
+        }
+        try (OutputStream out = new FileOutputStream(new File(folder, fileName + ".png"))) {
+            worker.writePng(out);
+        }
+    }
+
+    /**
+     * Writes the profile of a Graph as SVG, on the calling thread.
+     *
+     * @param graph the Graph to export
+     * @param out the stream to write, which is not closed
+     * @throws IOException if unable to write
+     */
+    public void writeSvg(Graph graph, OutputStream out) throws IOException {
+        Worker worker = workers.get();
+        worker.layout(graph);
+        worker.writeSvg(graph, out);
+    }
+
+    /**
+     * Writes the profile of a Graph as PNG, on the calling thread.
+     *
+     * @param graph the Graph to export
+     * @param out the stream to write, which is not closed
+     * @throws IOException if unable to write
+     */
+    public void writePng(Graph graph, OutputStream out) throws IOException {
+        Worker worker = workers.get();
+        worker.layout(graph);
+        worker.writePng(out);
+    }
+
+    /**
+     * Returns the name of a Graph's files, without the characters that are not portable.
+     *
+     * @param graph the Graph
+     * @return file name, without extension
+     */
+    static String getFileName(Graph graph) {
+        String name = graph.getName();
+        if (name == null || name.isEmpty()) {
+            return "graph" + graph.hashCode();
+        }
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            boolean isPortable = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '_';
+            sb.append(isPortable ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The layout and buffers of a thread's exports, reused from Graph to Graph.
+     */
+    private final class Worker {
+
+        private final ProfileDecimator vertices = new ProfileDecimator();
+        private final int[] surfaceTops = new int[width]; // topmost row of the surface line, per column
+        private final int[] surfaceBottoms = new int[width]; // bottommost, above the earth
+        private final int[] columnColors = new int[width]; // of the difficulty band, or background
+        private float[] poiXs = new float[64];
+        private float[] poiYs = new float[64];
+        private byte[] poiTypes = new byte[64];
+        private Node[] poiNodes = new Node[64];
+        private int poiCount;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position; // within the buffer
+        private OutputStream out;
+        private final byte[] row = new byte[1 + 3 * width]; // filter type, then RGB
+        private final byte[] chunkPrefix = new byte[8]; // length and type, then CRC
+        private final byte[] headerData = new byte[13]; // of the IHDR chunk
+        private final Deflater deflater = new Deflater();
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Lays out the profile of a Graph: its vertices, its surface and difficulty band of
+         * each pixel column, and its points of interest.
+         *
+         * @param graph the Graph to export
+         */
+        void layout(Graph graph) {
+            ProfileOverview overview = graph.getOverview(); // its extents, building the Graph's columns
+            double totalDist = overview.getTotalDistance();
+            double horiScale = totalDist > 0.0 ? (width - 1) / totalDist : 0.0;
+            float lowest = overview.getLowestElevation();
+            double range = Math.max(overview.getHighestElevation() - lowest, 1.0);
+            double vertScale = Math.min(horiScale * vertExag, (height - 2.0 * MARGIN - 4.0 * POI_RADIUS) / range);
+            double baseY = height - MARGIN - 2.0 * POI_RADIUS; // of the lowest point, above its water
+
+            vertices.reset();
+            int nodeCount = graph.getNodeCount();
+            for (int i = 0; i < nodeCount; ++i) {
+                vertices.add((float) (graph.getDistance(i) * horiScale),
+                        (float) (baseY - (graph.getNode(i).getElevation() - lowest) * vertScale));
+            }
+            vertices.finish();
+
+            Arrays.fill(surfaceTops, Integer.MAX_VALUE);
+            Arrays.fill(surfaceBottoms, -1);
+            for (int v = 1; v < vertices.getVertexCount(); ++v) {
+                addSurfaceLine(vertices.getX(v - 1), vertices.getY(v - 1), vertices.getX(v), vertices.getY(v));
+            }
+
+            Arrays.fill(columnColors, COLOR_BACKGROUND);
+            DifficultyBands bands = graph.getDifficultyBands(true);
+            for (int run = 0; run < bands.getCount(); ++run) {
+                int start = Math.max((int) (bands.getStart(run) * horiScale), 0);
+                int end = Math.min((int) Math.ceil(bands.getEnd(run) * horiScale), width);
+                Arrays.fill(columnColors, start, Math.max(end, start + 1), BAND_COLORS[bands.getDifficulty(run)]);
+            }
+
+            poiCount = 0;
+            for (byte type = PoiType.WATER; type < PoiType.COUNT; ++type) {
+                for (int i : graph.getPoiIndices(type)) {
+                    Node n = graph.getNode(i);
+                    float y = (float) (baseY - (n.getElevation() - lowest) * vertScale);
+                    addPoi((float) (graph.getDistance(i) * horiScale),
+                            type == PoiType.WATER ? y + 2 * POI_RADIUS : y - 2 * POI_RADIUS, type, n);
+                }
+            }
+        }
+
+        /**
+         * Widens the surface of the pixel columns a line of the profile crosses.
+         */
+        private void addSurfaceLine(float x0, float y0, float x1, float y1) {
+            int first = Math.max((int) x0, 0);
+            int last = Math.min((int) x1, width - 1);
+            float slope = x1 - x0 > 0.0f ? (y1 - y0) / (x1 - x0) : 0.0f;
+            for (int c = first; c <= last; ++c) {
+                float ya = y0 + (Math.max(x0, c) - x0) * slope;
+                float yb = x1 - x0 > 0.0f ? y0 + (Math.min(x1, c + 1) - x0) * slope : y1;
+                int top = (int) Math.floor(Math.min(ya, yb));
+                int bottom = Math.max((int) Math.ceil(Math.max(ya, yb)), top + 1); // at least 2 pixels
+                surfaceTops[c] = Math.min(surfaceTops[c], top);
+                surfaceBottoms[c] = Math.max(surfaceBottoms[c], bottom);
+            }
+        }
+
+        private void addPoi(float x, float y, byte type, Node n) {
+            if (poiCount == poiXs.length) {
+                int capacity = 2 * poiCount;
+                poiXs = Arrays.copyOf(poiXs, capacity);
+                poiYs = Arrays.copyOf(poiYs, capacity);
+                poiTypes = Arrays.copyOf(poiTypes, capacity);
+                poiNodes = Arrays.copyOf(poiNodes, capacity);
+            }
+            poiXs[poiCount] = x;
+            poiYs[poiCount] = y;
+            poiTypes[poiCount] = type;
+            poiNodes[poiCount] = n;
+            ++poiCount;
+        }
+
+        /**
+         * Writes the laid out profile as SVG: its difficulty bands, earth and surface, and its
+         * points of interest, titled with their names and descriptions.
+         */
+        void writeSvg(Graph graph, OutputStream out) throws IOException {
+            this.out = out;
+            position = 0;
+
+            write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+            writeInt(width);
+            write("\" height=\"");
+            writeInt(height);
+            write("\">\n<title>");
+            writeEscaped(graph.getName());
+            write("</title>\n");
+            writeRect(0, width, COLOR_BACKGROUND);
+
+            // the bands, merged across columns of the same difficulty
+            int start = 0;
+            for (int c = 1; c <= width; ++c) {
+                if (c == width || columnColors[c] != columnColors[start]) {
+                    if (columnColors[start] != COLOR_BACKGROUND) {
+                        writeRect(start, c, columnColors[start]);
+                    }
+                    start = c;
+                }
+            }
+
+            int vertexCount = vertices.getVertexCount();
+            if (vertexCount > 0) {
+                write("<path fill=\"");
+                writeColor(COLOR_EARTH);
+                write("\" d=\"M");
+                writeDecimal(vertices.getX(0));
+                put(' ');
+                writeInt(height);
+                for (int v = 0; v < vertexCount; ++v) {
+                    put('L');
+                    writeDecimal(vertices.getX(v));
+                    put(' ');
+                    writeDecimal(vertices.getY(v));
+                }
+                put('L');
+                writeDecimal(vertices.getX(vertexCount - 1));
+                put(' ');
+                writeInt(height);
+                write("Z\"/>\n<polyline fill=\"none\" stroke-width=\"1.5\" stroke=\"");
+                writeColor(COLOR_SURFACE);
+                write("\" points=\"");
+                for (int v = 0; v < vertexCount; ++v) {
+                    if (v > 0) {
+                        put(' ');
+                    }
+                    writeDecimal(vertices.getX(v));
+                    put(',');
+                    writeDecimal(vertices.getY(v));
+                }
+                write("\"/>\n");
+            }
+
+            for (int i = 0; i < poiCount; ++i) {
+                write("<circle cx=\"");
+                writeDecimal(poiXs[i]);
+                write("\" cy=\"");
+                writeDecimal(poiYs[i]);
+                write("\" r=\"");
+                writeInt(POI_RADIUS);
+                write("\" fill=\"");
+                writeColor(POI_COLORS[poiTypes[i]]);
+                write("\"><title>");
+                writeEscaped(poiNodes[i].getName());
+                write(": ");
+                writeEscaped(poiNodes[i].getDescription());
+                write("</title></circle>\n");
+            }
+            write("</svg>\n");
+            flush();
+        }
+
+        private void writeRect(int left, int right, int color) throws IOException {
+            write("<rect x=\"");
+            writeInt(left);
+            write("\" width=\"");
+            writeInt(right - left);
+            write("\" height=\"");
+            writeInt(height);
+            write("\" fill=\"");
+            writeColor(color);
+            write("\"/>\n");
+        }
+
+        /**
+         * Writes the laid out profile as an 8-bit RGB PNG, rasterized and deflated a row at a
+         * time into IDAT chunks of the buffer's size.
+         */
+        void writePng(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(PNG_SIGNATURE);
+
+            putInt(headerData, 0, width);
+            putInt(headerData, 4, height);
+            headerData[8] = 8; // bits per sample
+            headerData[9] = 2; // RGB
+            headerData[10] = 0; // deflate
+            headerData[11] = 0; // adaptive filtering, with filter type 0 (none) on every row
+            headerData[12] = 0; // not interlaced
+            writeChunk(PNG_IHDR, headerData, 0, headerData.length);
+
+            position = 0;
+            deflater.reset();
+            for (int y = 0; y < height; ++y) {
+                rasterizeRow(y);
+                deflater.setInput(row);
+                while (!deflater.needsInput()) {
+                    deflateToChunks();
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflateToChunks();
+            }
+            if (position > 0) {
+                writeChunk(PNG_IDAT, buffer, 0, position);
+                position = 0;
+            }
+            writeChunk(PNG_IEND, buffer, 0, 0);
+        }
+
+        /**
+         * Frees the native memory of the Deflater, after which the Worker is not used.
+         */
+        void end() {
+            deflater.end();
+        }
+
+        private void deflateToChunks() throws IOException {
+            position += deflater.deflate(buffer, position, buffer.length - position);
+            if (position == buffer.length) {
+                writeChunk(PNG_IDAT, buffer, 0, position);
+                position = 0;
+            }
+        }
+
+        private void rasterizeRow(int y) {
+            row[0] = 0; // filter type none
+            for (int x = 0; x < width; ++x) {
+                int color;
+                if (y >= surfaceTops[x] && y <= surfaceBottoms[x]) {
+                    color = COLOR_SURFACE;
+                } else if (surfaceBottoms[x] >= 0 && y > surfaceBottoms[x]) {
+                    color = COLOR_EARTH;
+                } else {
+                    color = columnColors[x];
+                }
+                putRgb(x, color);
+            }
+            for (int i = 0; i < poiCount; ++i) {
+                float dy = y + 0.5f - poiYs[i];
+                if (Math.abs(dy) > POI_RADIUS) {
+                    continue;
+                }
+                int first = Math.max((int) (poiXs[i] - POI_RADIUS), 0);
+                int last = Math.min((int) (poiXs[i] + POI_RADIUS), width - 1);
+                for (int x = first; x <= last; ++x) {
+                    float dx = x + 0.5f - poiXs[i];
+                    if (dx * dx + dy * dy <= POI_RADIUS * POI_RADIUS) {
+                        putRgb(x, POI_COLORS[poiTypes[i]]);
+                    }
+                }
+            }
+        }
+
+        private void putRgb(int x, int color) {
+            int offset = 1 + 3 * x;
+            row[offset] = (byte) (color >>> 16);
+            row[offset + 1] = (byte) (color >>> 8);
+            row[offset + 2] = (byte) color;
+        }
+
+        private void writeChunk(byte[] type, byte[] data, int offset, int length) throws IOException {
+            putInt(chunkPrefix, 0, length);
+            System.arraycopy(type, 0, chunkPrefix, 4, 4);
+            out.write(chunkPrefix);
+            out.write(data, offset, length);
+            crc.reset();
+            crc.update(type);
+            crc.update(data, offset, length);
+            putInt(chunkPrefix, 0, (int) crc.getValue());
+            out.write(chunkPrefix, 0, 4);
+        }
+
+        private void put(char c) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) c;
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        /**
+         * Writes ASCII text, as is.
+         */
+        private void write(String s) throws IOException {
+            for (int i = 0; i < s.length(); ++i) {
+                put(s.charAt(i));
+            }
+        }
+
+        /**
+         * Writes text as XML character data, escaping markup and any character beyond ASCII.
+         */
+        private void writeEscaped(String s) throws IOException {
+            if (s == null) {
+                return;
+            }
+            for (int i = 0; i < s.length(); ++i) {
+                char c = s.charAt(i);
+                if (c == '<') {
+                    write("&lt;");
+                } else if (c == '>') {
+                    write("&gt;");
+                } else if (c == '&') {
+                    write("&amp;");
+                } else if (c == '"') {
+                    write("&quot;");
+                } else if (c >= ' ' && c < 0x7f) {
+                    put(c);
+                } else if (c >= ' ' || c == '\t' || c == '\n') {
+                    int codePoint = s.codePointAt(i);
+                    write("&#");
+                    writeInt(codePoint);
+                    put(';');
+                    i += Character.charCount(codePoint) - 1;
+                }
+            }
+        }
+
+        private void writeInt(int value) throws IOException {
+            if (value < 0) {
+                put('-');
+                value = -value;
+            }
+            int divisor = 1;
+            while (value / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                put((char) ('0' + value / divisor % 10));
+            }
+        }
+
+        /**
+         * Writes a number to one decimal place, which is a tenth of a pixel.
+         */
+        private void writeDecimal(float value) throws IOException {
+            int tenths = Math.round(value * 10.0f);
+            if (tenths < 0) {
+                put('-');
+                tenths = -tenths;
+            }
+            writeInt(tenths / 10);
+            put('.');
+            put((char) ('0' + tenths % 10));
+        }
+
+        private void writeColor(int color) throws IOException {
+            put('#');
+            for (int shift = 20; shift >= 0; shift -= 4) {
+                put(Character.forDigit((color >>> shift) & 0xf, 16));
+            }
+        }
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
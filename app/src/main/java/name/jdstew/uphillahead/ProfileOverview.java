@@ -0,0 +1,124 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The ProfileOverview class holds the coarsest level of detail of a Graph's profile: the
+ * highest elevation within each of a fixed number of buckets of equal horizontal distance,
+ * spanning the whole Graph.  It is built once per Graph (see Graph.getOverview()), in one pass
+ * over the Nodes, so the overview strip of a route of any length is drawn from a few hundred
+ * points rather than by walking its Edges.
+ *
+ * The overview is of the Graph from its first Node, and is mirrored to draw the direction to
+ * the start.  It is never changed once built.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class ProfileOverview {
+
+    private final float[] maxElevations; // meters, of each bucket
+    private final float lowestElevation;
+    private final float highestElevation;
+    private final double totalDist;
+
+    /**
+     * Builds the overview of a Graph.
+     *
+     * @param graph the Graph, with its columns built
+     * @param bucketCount buckets across the whole Graph
+     */
+    ProfileOverview(Graph graph, int bucketCount) {
+        maxElevations = new float[bucketCount];
+        int nodeCount = graph.getNodeCount();
+        totalDist = nodeCount > 0 ? graph.getDistance(nodeCount - 1) : 0.0;
+
+        float lowest = Float.POSITIVE_INFINITY;
+        float highest = Float.NEGATIVE_INFINITY;
+        int lastBucket = -1;
+        float lastElevation = 0.0f;
+        for (int i = 0; i < nodeCount; ++i) {
+            float elevation = (float) graph.getNode(i).getElevation();
+            int bucket = totalDist > 0.0 ? (int) (graph.getDistance(i) / totalDist * bucketCount) : 0;
+            bucket = Math.min(bucket, bucketCount - 1);
+            if (bucket != lastBucket) {
+                // a bucket without Nodes (i.e., within a long Edge) is at the elevation entering it
+                for (int b = lastBucket + 1; b < bucket; ++b) {
+                    maxElevations[b] = lastElevation;
+                }
+                maxElevations[bucket] = elevation;
+                lastBucket = bucket;
+            } else {
+                maxElevations[bucket] = Math.max(maxElevations[bucket], elevation);
+            }
+            lastElevation = elevation;
+            lowest = Math.min(lowest, elevation);
+            highest = Math.max(highest, elevation);
+        }
+        for (int b = lastBucket + 1; b < bucketCount; ++b) {
+            maxElevations[b] = lastElevation;
+        }
+        lowestElevation = nodeCount > 0 ? lowest : 0.0f;
+        highestElevation = nodeCount > 0 ? highest : 0.0f;
+    }
+
+    /**
+     * Gets the number of buckets across the whole Graph.
+     *
+     * @return bucket count
+     */
+    int getBucketCount() {
+        return maxElevations.length;
+    }
+
+    /**
+     * Gets the highest elevation within a bucket.
+     *
+     * @param bucket from the first Node of the Graph
+     * @return elevation, in meters
+     */
+    float getMaxElevation(int bucket) {
+        return maxElevations[bucket];
+    }
+
+    /**
+     * Gets the lowest elevation of the Graph.
+     *
+     * @return elevation, in meters
+     */
+    float getLowestElevation() {
+        return lowestElevation;
+    }
+
+    /**
+     * Gets the highest elevation of the Graph.
+     *
+     * @return elevation, in meters
+     */
+    float getHighestElevation() {
+        return highestElevation;
+    }
+
+    /**
+     * Gets the horizontal distance from the first to the last Node of the Graph.
+     *
+     * @return distance, in meters
+     */
+    double getTotalDistance() {
+        return totalDist;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Configuration;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.preference.PreferenceManager;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The ProfilePreviewView class previews, within the Settings Activity, the profile ahead of the
+ * last stored location, so a change of the vertical exaggeration is seen while its slider is
+ * dragged.  The Graph is loaded and the location matched to it on a background thread, when
+ * the view is sized; the profile is then walked once, and each change of the exaggeration
+ * only scales it again (see ProfileEngine and ProfileShape).
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+public final class ProfilePreviewView extends View {
+
+    private static final ExecutorService matchExecutor = Executors.newSingleThreadExecutor();
+
+    private final ProfileEngine engine = new ProfileEngine();
+    private final ProfileShape profileShape = new ProfileShape();
+    private GraphSettings settings;
+    private GraphPaints paints;
+    private TrailMatch match; // null if there is no route, or until it is loaded and matched
+    private int matchRequest; // the latest match requested, so an earlier one is not applied
+    private double vertExag;
+
+    /**
+     * Creates the preview, inflated from a layout.
+     *
+     * @param context of the Settings Activity
+     * @param attrs of the layout
+     */
+    public ProfilePreviewView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Previews a vertical exaggeration, before it is applied to the GraphView.
+     *
+     * @param vertExag vertical exaggeration
+     */
+    public void setVertExag(double vertExag) {
+        this.vertExag = vertExag;
+        compute(getWidth(), getHeight());
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(getContext());
+        settings = GraphSettings.read(prefs);
+        if (vertExag == 0.0) { // i.e., not yet previewed
+            vertExag = settings.getVertExag();
+        }
+        int nightModeFlags = getContext().getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        paints = new GraphPaints(getContext(), nightModeFlags == Configuration.UI_MODE_NIGHT_YES);
+
+        // the location stored by the GraphView, see GraphView.onStopPsuedo()
+        double latitude = Double.parseDouble(prefs.getString("location_latitude_pref_key", Double.toString(Config.LOCATION_DEFAULT_LATITUDE)));
+        double longitude = Double.parseDouble(prefs.getString("location_longitude_pref_key", Double.toString(Config.LOCATION_DEFAULT_LONGITUDE)));
+        double elevation = Double.parseDouble(prefs.getString("location_elevation_pref_key", Double.toString(0.0)));
+        Context context = getContext();
+        String routeName = settings.getRouteName();
+        boolean isDirectionToEnd = settings.isDirectionToEnd();
+        int request = ++matchRequest;
+        // loading the Graph reads it from storage, and matching may build its columns
+        matchExecutor.execute(() -> {
+            Graph graph = GraphManager.getInstance(context).getGraph(routeName);
+            TrailMatch newMatch = graph != null ? TrailMatch.match(graph, latitude, longitude, elevation, isDirectionToEnd) : null;
+            post(() -> {
+                if (request == matchRequest) {
+                    match = newMatch;
+                    compute(getWidth(), getHeight());
+                    invalidate();
+                }
+            });
+        });
+        compute(width, height); // the last match, if any, until the new one is posted
+    }
+
+    private void compute(int width, int height) {
+        if (match == null || width == 0 || height == 0) {
+            return;
+        }
+        engine.compute(match, width, height, settings.getZoomDist(), settings.getVertBias(), vertExag,
+                settings.getPaceBias(), paints.getIconPixels());
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (paints == null) {
+            return;
+        }
+        canvas.drawColor(paints.getBackgroundColor());
+        if (match == null) {
+            return;
+        }
+
+        profileShape.draw(canvas, engine, getHeight(), paints.isNightMode() ? null : paints.getEarthPaint(), paints.getSurfacePaint());
+        float startingY = engine.getStartingY();
+        canvas.drawLine(0.0f, startingY, (float) getWidth(), startingY, paints.getDashedLinePaint());
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The ProfileReadout class maps a horizontal position in the GraphView's profile to the
+ * cumulative distance, time, gain and loss from the observer: the position is converted to a
+ * distance along the Graph, whose cumulative values are interpolated by binary search (see
+ * Graph.getCumulativeValues()) and less those at the observer.  So, a touch point is read out
+ * in O(log n), without walking the Graph or drawing the profile again, e.g., while a finger
+ * scrubs across the profile.
+ *
+ * A readout is set once per profile, and is used only by the render thread.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class ProfileReadout {
+
+    private Graph graph; // null if nothing is drawn
+    private boolean isDirectionToEnd;
+    private double observerDist; // horizontal meters from the first Node, or NaN beyond the trail
+    private double horiScale; // pixels per meter
+    private double paceBias;
+    private double endX; // pixels, of the last Node drawn
+    private final double[] observerValues = new double[Graph.CUMULATIVE_COUNT];
+    private final double[] touchValues = new double[Graph.CUMULATIVE_COUNT];
+
+    /**
+     * Removes the profile, so that nothing is located.
+     */
+    void clear() {
+        graph = null;
+    }
+
+    /**
+     * Sets the profile drawn, with the observer at its left edge.
+     *
+     * @param graph the displayed Graph
+     * @param isDirectionToEnd the direction of travel, true for from start-to-end manner
+     * @param observerDist horizontal distance of the observer from the first Node, in meters, or
+     *                     NaN if beyond the end of the trail
+     * @param horiScale pixels per meter
+     * @param paceBias pace multiplier of the user
+     * @param endX horizontal position of the last Node drawn, in pixels
+     */
+    void set(Graph graph, boolean isDirectionToEnd, double observerDist, double horiScale,
+             double paceBias, double endX) {
+        this.graph = graph;
+        this.isDirectionToEnd = isDirectionToEnd;
+        this.observerDist = observerDist;
+        this.horiScale = horiScale;
+        this.paceBias = paceBias;
+        this.endX = endX;
+        if (!Double.isNaN(observerDist)) {
+            graph.getCumulativeValues(observerDist, observerValues);
+        }
+    }
+
+    /**
+     * Finds the values at a horizontal coordinate, which are then returned by the get...()
+     * methods.
+     *
+     * @param touchX horizontal coordinate, in pixels
+     * @return true if the profile is drawn across the coordinate
+     */
+    boolean locate(int touchX) {
+        if (graph == null || Double.isNaN(observerDist) || touchX < 0 || touchX > endX) {
+            return false;
+        }
+
+        double touchDist = touchX / horiScale;
+        graph.getCumulativeValues(isDirectionToEnd ? observerDist + touchDist : observerDist - touchDist, touchValues);
+        return true;
+    }
+
+    /**
+     * Returns the change of a cumulative value from the observer to the located touch point,
+     * in the direction of travel.
+     */
+    private double getChange(int value) {
+        return isDirectionToEnd ? touchValues[value] - observerValues[value] : observerValues[value] - touchValues[value];
+    }
+
+    /**
+     * Gets the cumulative distance at the located touch point.
+     *
+     * @return distance, in meters
+     */
+    double getDistance() {
+        return getChange(Graph.CUMULATIVE_DIST);
+    }
+
+    /**
+     * Gets the cumulative time at the located touch point.
+     *
+     * @return time, in hours
+     */
+    double getTime() {
+        return getChange(isDirectionToEnd ? Graph.CUMULATIVE_HOURS_TO_END : Graph.CUMULATIVE_HOURS_TO_START) / paceBias;
+    }
+
+    /**
+     * Gets the cumulative elevation gain at the located touch point.
+     *
+     * @return gain, in meters
+     */
+    double getGain() {
+        // hiking to the start, the loss to the end is gained
+        return isDirectionToEnd ? getChange(Graph.CUMULATIVE_GAIN) : -getChange(Graph.CUMULATIVE_LOSS);
+    }
+
+    /**
+     * Gets the cumulative elevation loss at the located touch point.
+     *
+     * @return loss, in meters (negative)
+     */
+    double getLoss() {
+        return isDirectionToEnd ? getChange(Graph.CUMULATIVE_LOSS) : -getChange(Graph.CUMULATIVE_GAIN);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+/**
+ * The ProfileShape class draws the surface and earth of a ProfileEngine's geometry.  The
+ * surface's line segments and the earth's Path are built in meters, once per version of the
+ * geometry, and are drawn through a Matrix of the engine's scale, so a change of vertical
+ * exaggeration (or a frame of the same view) is drawn without building them again.
+ *
+ * A shape is used by one thread at a time, e.g., the GraphView's render thread.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class ProfileShape {
+
+    private static final int LINES_CAPACITY = 4 * 1_024; // values, grown as needed
+
+    private float[] meterLines = new float[LINES_CAPACITY]; // line segments, in meters
+    private float[] pixelLines = new float[LINES_CAPACITY]; // meterLines by the matrix, see Canvas.drawLines()
+    private int lineCount; // values (4 per segment) in meterLines
+    private final Path meterPath = new Path(); // the surface, in meters
+    private final Path earthPolygon = new Path(); // The surface filled in below, in pixels
+    private final Matrix matrix = new Matrix();
+    private int geometryVersion = -1;
+
+    /**
+     * Draws the profile of an engine's last computation.
+     *
+     * @param canvas to draw upon
+     * @param engine the computed engine
+     * @param height of the view, in pixels
+     * @param earthPaint paint of the earth below the surface, or null to not draw it
+     * @param surfacePaint paint of the surface
+     */
+    void draw(Canvas canvas, ProfileEngine engine, int height, Paint earthPaint, Paint surfacePaint) {
+        if (engine.getGeometryVersion() != geometryVersion) {
+            build(engine.getGeometry());
+            geometryVersion = engine.getGeometryVersion();
+        }
+        float startingY = engine.getStartingY();
+
+        // meters to pixels, with elevations increasing upward from the level line
+        matrix.setScale((float) engine.getHoriScale(), (float) -engine.getVertScale());
+        matrix.postTranslate(0.0f, startingY);
+
+        // Z-order-20. Brown "earth" filled polygon [Path earthPolygon; LIGHT ONLY]
+        if (earthPaint != null) {
+            meterPath.transform(matrix, earthPolygon);
+            // go to bottom right
+            earthPolygon.lineTo(engine.getEndX(), (float)height);
+            // go to bottom left
+            earthPolygon.lineTo(0.0f, (float)height);
+            // return to start, to close Path
+            earthPolygon.lineTo(0.0f, startingY);
+
+            canvas.drawPath(earthPolygon, earthPaint);
+        }
+
+        // Z-order-30. Black/gray "surface" lines# [float[] pixelLines;]
+        matrix.mapPoints(pixelLines, 0, meterLines, 0, lineCount / 2);
+        canvas.drawLines(pixelLines, 0, lineCount, surfacePaint);
+    }
+
+    /**
+     * Builds the surface's line segments and Path from the decimated geometry, at most 4
+     * vertices per pixel column of the view.
+     */
+    private void build(ProfileDecimator geometry) {
+        lineCount = 0;
+        meterPath.rewind();
+        meterPath.moveTo(geometry.getX(0), geometry.getY(0));
+        for (int v = 1; v < geometry.getVertexCount(); ++v) {
+            addLine(geometry.getX(v - 1), geometry.getY(v - 1), geometry.getX(v), geometry.getY(v));
+            meterPath.lineTo(geometry.getX(v), geometry.getY(v));
+        }
+        if (pixelLines.length < meterLines.length) {
+            pixelLines = new float[meterLines.length];
+        }
+    }
+
+    private void addLine(float x0, float y0, float x1, float y1) {
+        if (lineCount + 4 > meterLines.length) {
+            float[] grown = new float[meterLines.length * 2];
+            System.arraycopy(meterLines, 0, grown, 0, lineCount);
+            meterLines = grown;
+        }
+        meterLines[lineCount++] = x0;
+        meterLines[lineCount++] = y0;
+        meterLines[lineCount++] = x1;
+        meterLines[lineCount++] = y1;
+    }
+}
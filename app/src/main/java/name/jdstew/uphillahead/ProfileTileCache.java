@@ -0,0 +1,448 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Path;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ProfileTileCache class holds the GraphView's profile (its surface and earth) drawn into
+ * tiles: strips Config.TILE_WIDTH pixels wide along the whole Graph, at a zoom, exaggeration
+ * and theme.  The profile of a section never changes, so a tile is drawn once, on a background
+ * thread, and a frame only composites the two or three tiles in view, placed by the observer's
+ * distance and elevation.  Tiles are held in an LRU cache in memory and written to the app's
+ * cache directory, from which they are read again once evicted (or after the app restarts).
+ *
+ * Tiles are drawn in the direction to the end of the Graph; the direction to the start draws
+ * them mirrored.  The render thread never draws a tile; it requests those missing and draws
+ * the profile without tiles until they are ready, see setOnTileReady().
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class ProfileTileCache {
+
+    private static final String TILE_FILE_TYPE = ".png";
+    private static final String PARTIAL_FILE_TYPE = ".tmp";
+
+    private static ProfileTileCache cache;
+    private static final ExecutorService tileExecutor = Executors.newSingleThreadExecutor();
+
+    private final File directory;
+    private final LruCache<String, Tile> tiles;
+    private final ConcurrentHashMap<String, Boolean> pending; // queued keys, true if missing from a frame
+    private final AtomicInteger neededCount; // pending tiles missing from a frame
+    private volatile Runnable onTileReady;
+
+    // used only by the tile thread
+    private final ProfileDecimator decimator;
+    private final Path earthPolygon;
+    private float[] surfaceLines;
+    private final int[] viewport = new int[2]; // see Graph.getViewport()
+
+    /**
+     * The Tile class is one drawn strip of the profile.  Its bitmap is null if the section is
+     * too steep (at the exaggeration) to be drawn into a tile, see Config.TILE_MAX_HEIGHT, or
+     * if it failed to be read or drawn.
+     */
+    static final class Tile {
+        private final Bitmap bitmap;
+        private final double topElevation; // at the top of the bitmap, in meters
+        private final float contentLeft; // pixels within the Graph, beyond its first or last Node
+        private final float contentRight;
+
+        private Tile(Bitmap bitmap, double topElevation, float contentLeft, float contentRight) {
+            this.bitmap = bitmap;
+            this.topElevation = topElevation;
+            this.contentLeft = contentLeft;
+            this.contentRight = contentRight;
+        }
+
+        /**
+         * Gets the drawn strip, transparent above the surface.
+         *
+         * @return the bitmap, or null if the section is not drawn into a tile
+         */
+        Bitmap getBitmap() {
+            return bitmap;
+        }
+
+        /**
+         * Gets the elevation at the top edge of the bitmap.
+         *
+         * @return elevation, in meters
+         */
+        double getTopElevation() {
+            return topElevation;
+        }
+
+        /**
+         * Gets the left edge of the profile within the tile, which is 0 but for the tile of
+         * the first Node.
+         *
+         * @return position, in pixels
+         */
+        float getContentLeft() {
+            return contentLeft;
+        }
+
+        /**
+         * Gets the right edge of the profile within the tile, which is Config.TILE_WIDTH but for
+         * the tile of the last Node.
+         *
+         * @return position, in pixels
+         */
+        float getContentRight() {
+            return contentRight;
+        }
+
+        private int getByteCount() {
+            return bitmap == null ? 1 : bitmap.getByteCount();
+        }
+    }
+
+    /**
+     * The Layer class is the set of tiles of one Graph, view width, zoom, exaggeration and
+     * theme, which names its tiles in memory and on disk.
+     */
+    static final class Layer {
+        private final Graph graph;
+        private final int width;
+        private final double zoomDist;
+        private final double vertExag;
+        private final GraphPaints paints;
+        private final double horiScale; // pixels per meter
+        private final int tileCount;
+        private final String keyPrefix;
+
+        /**
+         * Creates the layer of a view.
+         *
+         * @param graph the displayed Graph
+         * @param width of the view, in pixels
+         * @param zoomDist distance across the width of the view, see getTileZoom()
+         * @param vertExag vertical exaggeration
+         * @param paints of the theme drawn
+         */
+        Layer(Graph graph, int width, double zoomDist, double vertExag, GraphPaints paints) {
+            this.graph = graph;
+            this.width = width;
+            this.zoomDist = zoomDist;
+            this.vertExag = vertExag;
+            this.paints = paints;
+            horiScale = width / zoomDist;
+            tileCount = (int) Math.ceil(graph.getDistance(graph.getNodeCount() - 1) * horiScale / Config.TILE_WIDTH);
+            keyPrefix = String.format(Locale.ROOT, "%08x_%016x_%d_%d_%d_%d_%s_",
+                    Objects.hashCode(graph.getName()), graph.getFingerprint(), width, Math.round(zoomDist),
+                    Math.round(vertExag * 100.0), Math.round(paints.getSurfacePaint().getStrokeWidth() * 100.0),
+                    paints.isNightMode() ? "night" : "day");
+        }
+
+        /**
+         * Returns whether this is the layer of a view.
+         *
+         * @return true if the same Graph, width, zoom, exaggeration and paints
+         */
+        boolean isOf(Graph graph, int width, double zoomDist, double vertExag, GraphPaints paints) {
+            return this.graph == graph && this.width == width && this.zoomDist == zoomDist
+                    && this.vertExag == vertExag && this.paints == paints;
+        }
+
+        /**
+         * Gets the horizontal scale of the tiles.
+         *
+         * @return pixels per meter
+         */
+        double getHoriScale() {
+            return horiScale;
+        }
+
+        /**
+         * Gets the vertical scale of the tiles.
+         *
+         * @return pixels per meter, by exaggeration
+         */
+        double getVertScale() {
+            return horiScale * vertExag;
+        }
+
+        /**
+         * Gets the number of tiles along the Graph.
+         *
+         * @return number of tiles, the first from the first Node
+         */
+        int getTileCount() {
+            return tileCount;
+        }
+
+        private String getKey(int index) {
+            return keyPrefix + index;
+        }
+    }
+
+    private ProfileTileCache(File directory) {
+        this.directory = directory;
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / Config.TILE_MEMORY_DIVISOR, Integer.MAX_VALUE);
+        tiles = new LruCache<String, Tile>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Tile tile) {
+                return tile.getByteCount();
+            }
+        };
+        pending = new ConcurrentHashMap<>();
+        neededCount = new AtomicInteger();
+        decimator = new ProfileDecimator();
+        earthPolygon = new Path();
+        surfaceLines = new float[4 * Config.TILE_WIDTH * 4];
+    }
+
+    /**
+     * Gets the app's tile cache, which outlives the GraphView (e.g., on a rotation).
+     *
+     * @param context from the parent's Activity
+     * @return the cache
+     */
+    static synchronized ProfileTileCache getInstance(Context context) {
+        if (cache == null) {
+            cache = new ProfileTileCache(new File(context.getCacheDir(), Config.TILE_DIRECTORY));
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the zoom at which tiles are drawn for a zoom, which is the zoom rounded up to the
+     * next of Config.TILE_ZOOMS_PER_DOUBLING steps per doubling from Config.ZOOM_MIN.  The tiles
+     * span at least the width of the zoom, so are only ever scaled up (slightly) to the zoom.
+     * Each level of detail of a scroll gesture (see FrameRequest.getLevelOfDetail()) is a step.
+     *
+     * @param zoomDist distance displayed across the width of the view, in meters
+     * @return distance across the width of the tiles' view, in meters
+     */
+    static double getTileZoom(double zoomDist) {
+        double steps = Math.ceil(Math.log(zoomDist / Config.ZOOM_MIN) / Math.log(2.0) * Config.TILE_ZOOMS_PER_DOUBLING - 1.0e-6);
+        return Config.ZOOM_MIN * Math.pow(2.0, Math.max(steps, 0.0) / Config.TILE_ZOOMS_PER_DOUBLING);
+    }
+
+    /**
+     * Sets what is run, on the tile thread, once the tiles missing from a frame are ready
+     * (e.g., to draw the profile again with them).
+     *
+     * @param onTileReady run once the last missing tile is ready
+     */
+    void setOnTileReady(Runnable onTileReady) {
+        this.onTileReady = onTileReady;
+    }
+
+    /**
+     * Returns a tile if it is in memory, without waiting.
+     *
+     * @param layer of the view
+     * @param index of the tile, from the first Node
+     * @return the tile, or null if it must be requested
+     */
+    Tile get(Layer layer, int index) {
+        return tiles.get(layer.getKey(index));
+    }
+
+    /**
+     * Requests a tile, which is read from disk, or drawn, on the tile thread, unless it is in
+     * memory or already requested.
+     *
+     * @param layer of the view
+     * @param index of the tile, from the first Node
+     * @param isNeeded true if missing from a frame, false if requested ahead of the observer
+     */
+    void request(Layer layer, int index, boolean isNeeded) {
+        String key = layer.getKey(index);
+        if (tiles.get(key) != null) {
+            return;
+        }
+
+        Boolean wasNeeded = pending.putIfAbsent(key, isNeeded);
+        if (wasNeeded == null) {
+            if (isNeeded) {
+                neededCount.incrementAndGet();
+            }
+            tileExecutor.execute(() -> {
+                try {
+                    long startTime = System.nanoTime();
+                    tiles.put(key, loadTile(layer, index, key));
+                    Instrumentation.TILE_TIME.record(System.nanoTime() - startTime);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    // a tile without a bitmap, so the view is drawn from vectors, see GraphView.drawTiles()
+                    tiles.put(key, new Tile(null, Double.NaN, 0.0f, 0.0f));
+                } finally {
+                    // always, or the tile would never be requested again, nor onTileReady run
+                    if (pending.remove(key) && neededCount.decrementAndGet() == 0) {
+                        Runnable r = onTileReady;
+                        if (r != null) {
+                            r.run();
+                        }
+                    }
+                }
+            });
+        } else if (isNeeded && !wasNeeded && pending.replace(key, false, true)) {
+            neededCount.incrementAndGet(); // requested ahead, but now missing from a frame
+        }
+    }
+
+    /**
+     * Reads a tile from disk, or draws (and writes) it.
+     */
+    private Tile loadTile(Layer layer, int index, String key) {
+        Graph graph = layer.graph;
+        double horiScale = layer.getHoriScale();
+        double vertScale = layer.getVertScale();
+        double startDist = index * (double) Config.TILE_WIDTH / horiScale;
+        double endDist = (index + 1) * (double) Config.TILE_WIDTH / horiScale;
+        double graphDist = graph.getDistance(graph.getNodeCount() - 1);
+        float contentLeft = (float) Math.max(0.0, -startDist * horiScale);
+        float contentRight = (float) Math.min(Config.TILE_WIDTH, (graphDist - startDist) * horiScale);
+
+        // the Nodes of the tile, and those of the Edges crossing its edges
+        graph.getViewport(startDist, endDist, viewport);
+        double maxElev = Double.NEGATIVE_INFINITY;
+        double minElev = Double.POSITIVE_INFINITY;
+        for (int i = viewport[0]; i <= viewport[1]; ++i) {
+            double elev = graph.getNode(i).getElevation();
+            maxElev = Math.max(maxElev, elev);
+            minElev = Math.min(minElev, elev);
+        }
+        int pad = (int) Math.ceil(layer.paints.getSurfacePaint().getStrokeWidth());
+        double topElev = maxElev + pad / vertScale;
+        int height = (int) Math.ceil((maxElev - minElev) * vertScale) + 2 * pad;
+        if (height > Config.TILE_MAX_HEIGHT) {
+            return new Tile(null, topElev, contentLeft, contentRight);
+        }
+
+        File file = new File(directory, key + TILE_FILE_TYPE);
+        if (file.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+            if (bitmap != null && bitmap.getWidth() == Config.TILE_WIDTH && bitmap.getHeight() == height) {
+                file.setLastModified(System.currentTimeMillis()); // recently used, see trimDirectory()
+                return new Tile(bitmap, topElev, contentLeft, contentRight);
+            }
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(Config.TILE_WIDTH, height, Bitmap.Config.ARGB_8888);
+        drawTile(new Canvas(bitmap), layer, startDist, topElev, height);
+        writeTile(file, bitmap);
+        return new Tile(bitmap, topElev, contentLeft, contentRight);
+    }
+
+    /**
+     * Draws the surface, and the earth below it, of the Nodes in the viewport.
+     */
+    private void drawTile(Canvas canvas, Layer layer, double startDist, double topElev, int height) {
+        Graph graph = layer.graph;
+        double horiScale = layer.getHoriScale();
+        double vertScale = layer.getVertScale();
+
+        decimator.reset();
+        for (int i = viewport[0]; i <= viewport[1]; ++i) {
+            decimator.add((float) ((graph.getDistance(i) - startDist) * horiScale),
+                    (float) ((topElev - graph.getNode(i).getElevation()) * vertScale));
+        }
+        decimator.finish();
+
+        int vertexCount = decimator.getVertexCount();
+        if (4 * vertexCount > surfaceLines.length) {
+            surfaceLines = new float[4 * vertexCount];
+        }
+        int surfaceLineCount = 0;
+        earthPolygon.rewind();
+        earthPolygon.moveTo(decimator.getX(0), decimator.getY(0));
+        for (int v = 1; v < vertexCount; ++v) {
+            surfaceLines[surfaceLineCount++] = decimator.getX(v - 1);
+            surfaceLines[surfaceLineCount++] = decimator.getY(v - 1);
+            surfaceLines[surfaceLineCount++] = decimator.getX(v);
+            surfaceLines[surfaceLineCount++] = decimator.getY(v);
+            earthPolygon.lineTo(decimator.getX(v), decimator.getY(v));
+        }
+
+        if (!layer.paints.isNightMode()) {
+            earthPolygon.lineTo(decimator.getX(vertexCount - 1), (float) height);
+            earthPolygon.lineTo(decimator.getX(0), (float) height);
+            earthPolygon.close();
+            canvas.drawPath(earthPolygon, layer.paints.getEarthPaint());
+        }
+        canvas.drawLines(surfaceLines, 0, surfaceLineCount, layer.paints.getSurfacePaint());
+    }
+
+    /**
+     * Writes a tile to disk, then deletes the least recently used tiles beyond
+     * Config.TILE_DISK_BYTES.  A tile that cannot be written is only kept in memory.
+     */
+    private void writeTile(File file, Bitmap bitmap) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        File partialFile = new File(directory, file.getName() + PARTIAL_FILE_TYPE);
+        try (FileOutputStream fileOutputStream = new FileOutputStream(partialFile)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, fileOutputStream);
+        } catch (IOException ioe) {
+            partialFile.delete();
+            return;
+        }
+        if (partialFile.renameTo(file)) {
+            trimDirectory();
+        }
+    }
+
+    private void trimDirectory() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long totalBytes = 0L;
+        for (File f : files) {
+            totalBytes += f.length();
+        }
+        if (totalBytes <= Config.TILE_DISK_BYTES) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File f : files) {
+            if (totalBytes <= Config.TILE_DISK_BYTES) {
+                break;
+            }
+            long length = f.length();
+            if (f.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+import java.util.Arrays;
+
+/**
+ * The RollingHistogram class holds the most recent samples of one measurement (e.g., the time
+ * to draw a frame), from which its percentiles are summarized.  Samples may be recorded from
+ * any thread; recording a sample does not allocate.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class RollingHistogram {
+
+    private final String name;
+    private final String unit;
+    private final double unitsPerValue; // e.g., 1.0e-6 for nanoseconds displayed in milliseconds
+    private final long[] samples; // a ring of the most recent samples
+    private int count;
+    private int next;
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param name of the measurement
+     * @param unit displayed, e.g., "ms"
+     * @param unitsPerValue multiplier from a recorded value to the displayed unit
+     * @param capacity number of recent samples kept
+     */
+    RollingHistogram(String name, String unit, double unitsPerValue, int capacity) {
+        this.name = name;
+        this.unit = unit;
+        this.unitsPerValue = unitsPerValue;
+        samples = new long[capacity];
+    }
+
+    /**
+     * Records a sample, replacing the oldest once the histogram is full.
+     *
+     * @param value of the sample
+     */
+    synchronized void record(long value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            ++count;
+        }
+    }
+
+    /**
+     * Copies the samples, sorted, into a buffer.
+     *
+     * @param buffer of at least the histogram's capacity
+     * @return number of samples copied
+     */
+    synchronized int copySorted(long[] buffer) {
+        System.arraycopy(samples, 0, buffer, 0, count);
+        Arrays.sort(buffer, 0, count);
+        return count;
+    }
+
+    /**
+     * Returns a percentile of sorted samples, by the nearest-rank method.
+     *
+     * @param sorted samples, see copySorted()
+     * @param count number of samples
+     * @param percent percentile, from 0 to 100
+     * @return the percentile, in the displayed unit, or 0.0 if there are no samples
+     */
+    double getPercentile(long[] sorted, int count, double percent) {
+        if (count == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * count);
+        return sorted[Math.max(rank - 1, 0)] * unitsPerValue;
+    }
+
+    /**
+     * Gets the name of the measurement.
+     *
+     * @return name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the displayed unit of the measurement.
+     *
+     * @return unit
+     */
+    String getUnit() {
+        return unit;
+    }
+}
@@ -17,10 +17,14 @@
 package name.jdstew.uphillahead;
 
 import android.os.Bundle;
+import android.widget.Toast;
 
+import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
 import androidx.preference.SeekBarPreference;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.NumberFormat;
 
 /**
@@ -36,11 +40,12 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         // Load the preferences from an XML resource
         setPreferencesFromResource(R.xml.preferences, rootKey);
 
-        SeekBarPreference exaggerationSbp = findPreference(getString(R.string.exaggeration_pref_key));
+        PreviewSeekBarPreference exaggerationSbp = findPreference(getString(R.string.exaggeration_pref_key));
         exaggerationSbp.setSummary("vertical change " + exaggerationSbp.getValue() + " times horizontal");
+        // previewed while the slider is dragged, but written once it is released
+        exaggerationSbp.setOnPreviewListener(value -> previewExaggeration(exaggerationSbp, value));
         exaggerationSbp.setOnPreferenceChangeListener((preference, newValue) -> {
-            preference.setSummary("vertical change " + newValue + " times horizontal");
-
+            previewExaggeration(preference, Integer.parseInt(String.valueOf(newValue)));
             return true; // because we can't change the value of the preference to a float
         });
 
@@ -50,18 +55,61 @@ public class SettingsFragment extends PreferenceFragmentCompat {
 
         SeekBarPreference paceSbp = findPreference(getString(R.string.pace_pref_key));
         float paceMultiplier = paceSbp.getValue() * Config.PACE_PREFS_MULTIPLIER;
-        double paceKmHr = Calcs.getPaceAtSlope(0.0) * paceMultiplier * 1_000.0;
+        double paceKmHr = Calcs.getPace(0.0, 0.0) * paceMultiplier * 1_000.0;
         String paceDisplayedKmHr = Calcs.getDisplayedDist(paceKmHr, Config.SYSTEM_METRIC);
         String paceDisplayedMiHr = Calcs.getDisplayedDist(paceKmHr, Config.SYSTEM_IMPERIAL);
         paceSbp.setSummary(nf.format(paceMultiplier) + "(" + paceDisplayedMiHr + " or " + paceDisplayedKmHr + " per hr)");
 
         paceSbp.setOnPreferenceChangeListener((preference, newValue) -> {
             float paceVal = Float.parseFloat(String.valueOf(newValue)) * Config.PACE_PREFS_MULTIPLIER;
-            double pace = Calcs.getPaceAtSlope(0.0) * paceVal * 1_000.0;
+            double pace = Calcs.getPace(0.0, 0.0) * paceVal * 1_000.0;
             String paceKPH = Calcs.getDisplayedDist(pace, Config.SYSTEM_METRIC);
             String paceMPH = Calcs.getDisplayedDist(pace, Config.SYSTEM_IMPERIAL);
             preference.setSummary(nf.format(paceVal) + "(" + paceKPH + " or " + paceMPH + " per hr)");
             return true; // true indicates that the preferences of this slider should be updated
         });
+
+        SeekBarPreference flatSbp = findPreference(getString(R.string.pace_custom_flat_pref_key));
+        flatSbp.setSummary(getFlatPaceSummary(flatSbp.getValue()));
+        flatSbp.setOnPreferenceChangeListener((preference, newValue) -> {
+            preference.setSummary(getFlatPaceSummary(Integer.parseInt(String.valueOf(newValue))));
+            return true;
+        });
+
+        SeekBarPreference climbSbp = findPreference(getString(R.string.pace_custom_climb_pref_key));
+        climbSbp.setSummary(getClimbRateSummary(climbSbp.getValue()));
+        climbSbp.setOnPreferenceChangeListener((preference, newValue) -> {
+            preference.setSummary(getClimbRateSummary(Integer.parseInt(String.valueOf(newValue))));
+            return true;
+        });
+
+        Preference exportPref = findPreference(getString(R.string.debug_export_pref_key));
+        exportPref.setOnPreferenceClickListener(preference -> {
+            File file = new File(requireContext().getExternalFilesDir(null), Config.DEBUG_EXPORT_FILE_NAME);
+            try {
+                Instrumentation.exportCsv(file);
+                Toast.makeText(requireContext(), "Exported to " + file.getPath(), Toast.LENGTH_LONG).show();
+            } catch (IOException ioe) {
+                Toast.makeText(requireContext(), "Unable to export performance data", Toast.LENGTH_LONG).show();
+            }
+            return true;
+        });
+    }
+
+    private void previewExaggeration(Preference preference, int value) {
+        preference.setSummary("vertical change " + value + " times horizontal");
+        ProfilePreviewView preview = requireActivity().findViewById(R.id.view_profile_preview);
+        if (preview != null) {
+            preview.setVertExag(value);
+        }
+    }
+
+    private static String getFlatPaceSummary(int value) {
+        double pace = value * Config.PACE_PREFS_MULTIPLIER * 1_000.0;
+        return Calcs.getDisplayedDist(pace, Config.SYSTEM_IMPERIAL) + " or " + Calcs.getDisplayedDist(pace, Config.SYSTEM_METRIC) + " per hr";
+    }
+
+    private static String getClimbRateSummary(int value) {
+        return Calcs.getDisplayedElev(value, Config.SYSTEM_IMPERIAL) + " or " + Calcs.getDisplayedElev(value, Config.SYSTEM_METRIC) + " climbed per hr";
     }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2023 Jeffrey D. Stewart
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package name.jdstew.uphillahead;
+
+/**
+ * The TrailMatch class holds the observer's location matched to a Graph: the observer's Node,
+ * with its entry Edge into the Graph (see Graph.setEntryEdge()), the distance along the Graph
+ * where it enters, and its distance from the trail.  A location is matched once, when it is
+ * fixed (or the route or direction changes), rather than on every frame, and the GraphView's
+ * renderer only reads the match.
+ *
+ * A TrailMatch, and its observer's Node, are never changed once created.
+ *
+ * @since 1.3
+ * @author Jeff Stewart, jeffrey.d.stew@gmail.com
+ */
+final class TrailMatch {
+
+    private final Graph graph;
+    private final boolean isDirectionToEnd;
+    private final Node observerNode;
+    private final double distToTrail;
+    private final double entryDist;
+
+    private TrailMatch(Graph graph, boolean isDirectionToEnd, Node observerNode, double distToTrail) {
+        this.graph = graph;
+        this.isDirectionToEnd = isDirectionToEnd;
+        this.observerNode = observerNode;
+        this.distToTrail = distToTrail;
+        entryDist = graph.getEntryDistance(observerNode, isDirectionToEnd);
+    }
+
+    /**
+     * Matches a location to a Graph, which searches all of the Graph's Nodes.
+     *
+     * @param graph the Graph of the selected route
+     * @param latitude of the observer, in degrees
+     * @param longitude of the observer, in degrees
+     * @param elevation of the observer, in meters (0.0 is leveled to the closest Node)
+     * @param isDirectionToEnd the direction of travel, true for from start-to-end manner
+     * @return the match
+     */
+    static TrailMatch match(Graph graph, double latitude, double longitude, double elevation,
+                            boolean isDirectionToEnd) {
+        long startTime = System.nanoTime();
+        Node observerNode = new Node(latitude, longitude, elevation);
+        double distToTrail = graph.setEntryEdge(observerNode, isDirectionToEnd);
+        Instrumentation.MATCH_TIME.record(System.nanoTime() - startTime);
+        return new TrailMatch(graph, isDirectionToEnd, observerNode, distToTrail);
+    }
+
+    /**
+     * Gets whether this match is of a Graph and direction of travel.
+     *
+     * @param graph the Graph of the selected route
+     * @param isDirectionToEnd the direction of travel
+     * @return true if matched to the same Graph and direction
+     */
+    boolean isOf(Graph graph, boolean isDirectionToEnd) {
+        return this.graph == graph && this.isDirectionToEnd == isDirectionToEnd;
+    }
+
+    /**
+     * Gets the Graph matched to.
+     *
+     * @return the Graph
+     */
+    Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the direction of travel matched in.
+     *
+     * @return true for from start-to-end manner
+     */
+    boolean isDirectionToEnd() {
+        return isDirectionToEnd;
+    }
+
+    /**
+     * Gets the observer's Node, whose only Edge enters the Graph in the direction of travel
+     * (or, beyond either end of the Graph, leads back to it).
+     *
+     * @return the observer's Node
+     */
+    Node getObserverNode() {
+        return observerNode;
+    }
+
+    /**
+     * Gets the distance of the observer from the trail.
+     *
+     * @return distance, in meters
+     */
+    double getDistToTrail() {
+        return distToTrail;
+    }
+
+    /**
+     * Gets the horizontal distance along the Graph where the observer enters it.
+     *
+     * @return distance from the first Node, in meters, or NaN if there is no Edge in the
+     * direction of travel (i.e., beyond the end of the trail)
+     */
+    double getEntryDistance() {
+        return entryDist;
+    }
+
+    /**
+     * Gets the Graph's Node closest to the observer along its Edge, e.g., to simulate a
+     * location on trail.
+     *
+     * @return the Node, or null if the observer's Node has no Edge
+     */
+    Node getClosestNode() {
+        // note: only one edge of the observer node is null
+        if (observerNode.getNextEdge() != null) {
+            return observerNode.getNextEdge().getNextNode();
+        } else if (observerNode.getPrevEdge() != null) {
+            return observerNode.getPrevEdge().getPrevNode();
+        }
+        return null;
+    }
+}
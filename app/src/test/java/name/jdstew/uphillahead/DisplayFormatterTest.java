@@ -0,0 +1,142 @@
+package name.jdstew.uphillahead;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the DisplayFormatter's parity with the NumberFormat output it replaced.
+ *
+ * Android's NumberFormat rounds the shortest decimal representation of a double (e.g., 9.95),
+ * rather than its exact binary value (9.949999...) as the JVM's does, so the reference values
+ * are formatted from that representation, as a BigDecimal.
+ */
+public class DisplayFormatterTest {
+
+    private static final double[] VALUES = {
+            0.0, 0.04, 0.05, 0.15, 0.25, 0.5, 1.0, 1.5, 2.5, 9.94, 9.95, 9.96, 99.95, 999.5,
+            999.95, 1_000.0, 1_234.5, 9_999.95, 12_345.678, 1_234_567.89, 1.005, 1.015};
+
+    private static String format(NumberFormat nf, double value) {
+        return nf.format(new BigDecimal(Double.toString(value)));
+    }
+
+    /**
+     * The formatting of Calcs.getDisplayedDist() before DisplayFormatter.
+     */
+    private static String getLegacyDist(double dist, String system) {
+        NumberFormat nf = NumberFormat.getInstance();
+        nf.setMaximumFractionDigits(1);
+        nf.setMinimumIntegerDigits(1);
+
+        if (system.compareTo(Config.SYSTEM_IMPERIAL) == 0) {
+            dist = Calcs.getMetersToMiles(dist);
+
+            if (dist >= 1.0) {
+                nf.setMinimumFractionDigits(1);
+                return format(nf, dist) + "mi";
+            } else if (dist >= 0.25) { // 100 yards
+                nf.setMaximumFractionDigits(2);
+                return format(nf, dist) + "mi";
+            } else {
+                nf.setMaximumFractionDigits(0);
+                return format(nf, dist * 1_760.0) + "yds";
+            }
+        } else {
+            if (dist >= 1_000.0) {
+                nf.setMinimumFractionDigits(1);
+                return format(nf, dist / 1_000.0) + "km"; // 1,000 meters
+            } else {
+                nf.setMaximumFractionDigits(0);
+                return format(nf, dist) + "m";
+            }
+        }
+    }
+
+    /**
+     * The formatting of Calcs.getDisplayedElev() before DisplayFormatter.
+     */
+    private static String getLegacyElev(double elev, String system) {
+        NumberFormat nf = NumberFormat.getInstance();
+        nf.setGroupingUsed(true);
+        nf.setMaximumFractionDigits(0);
+
+        if (Config.SYSTEM_IMPERIAL.equals(system)) {
+            return format(nf, Calcs.getMetersToFeet(elev)) + "ft";
+        } else {
+            return format(nf, elev) + "m";
+        }
+    }
+
+    /**
+     * The formatting of Calcs.getDisplayedTime() before DisplayFormatter.
+     */
+    private static String getLegacyTime(double time, String system) {
+        NumberFormat nf = NumberFormat.getInstance();
+        nf.setMaximumFractionDigits(0);
+        nf.setMinimumIntegerDigits(2);
+
+        if (system.compareTo(Config.SYSTEM_IMPERIAL) == 0) {
+            time = time / Units.KILOMETERS_TO_MILES;
+        }
+        int hours = (int)time;
+        int minutes = (int)((time - (double)hours) * 60.0);
+        return hours + ":" + nf.format(minutes);
+    }
+
+    @Test
+    public void fixed_matchesNumberFormat() {
+        NumberFormat nf = NumberFormat.getInstance();
+        nf.setMinimumIntegerDigits(1);
+        for (int max = 0; max <= 2; ++max) {
+            nf.setMaximumFractionDigits(max);
+            for (double value : VALUES) {
+                for (double signed : new double[] {value, -value}) {
+                    String expected = format(nf, signed);
+                    String actual = DisplayFormatter.appendFixed(new StringBuilder(), signed, 0, max, true).toString();
+                    assertEquals(signed + " to " + max + " digits", expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fixed_carriesAndNegatives() {
+        NumberFormat nf = NumberFormat.getInstance();
+        nf.setMinimumFractionDigits(1);
+        nf.setMaximumFractionDigits(1);
+        assertEquals(format(nf, 10.0), DisplayFormatter.appendFixed(new StringBuilder(), 9.95, 1, 1, true).toString());
+        assertEquals(format(nf, 1_000.0), DisplayFormatter.appendFixed(new StringBuilder(), 999.95, 1, 1, true).toString());
+        assertEquals(format(nf, 0.0), DisplayFormatter.appendFixed(new StringBuilder(), 0.0, 1, 1, true).toString());
+        assertEquals(format(nf, -0.04), DisplayFormatter.appendFixed(new StringBuilder(), -0.04, 1, 1, true).toString()); // "-0.0"
+        assertEquals("10.0", DisplayFormatter.appendFixed(new StringBuilder(), 9.95, 1, 1, false).toString().replace(DecimalFormatSymbols.getInstance().getDecimalSeparator(), '.'));
+        assertEquals(format(nf, -1_234.5), DisplayFormatter.appendFixed(new StringBuilder(), -1_234.5, 1, 1, true).toString());
+    }
+
+    @Test
+    public void displayed_matchesLegacyFormats() {
+        Random random = new Random(29);
+        String[] systems = {Config.SYSTEM_METRIC, Config.SYSTEM_IMPERIAL};
+        for (String system : systems) {
+            for (double value : VALUES) {
+                assertEquals(getLegacyDist(value * 100.0, system), Calcs.getDisplayedDist(value * 100.0, system));
+                assertEquals(getLegacyElev(value, system), Calcs.getDisplayedElev(value, system));
+                assertEquals(getLegacyElev(-value, system), Calcs.getDisplayedElev(-value, system));
+                assertEquals(getLegacyTime(value, system), Calcs.getDisplayedTime(value, system));
+            }
+            for (int i = 0; i < 10_000; ++i) {
+                double dist = Math.pow(10.0, 6.0 * random.nextDouble()); // 1 m to 1,000 km
+                assertEquals(getLegacyDist(dist, system), Calcs.getDisplayedDist(dist, system));
+                double elev = 9_000.0 * random.nextDouble() - 500.0;
+                assertEquals(getLegacyElev(elev, system), Calcs.getDisplayedElev(elev, system));
+                double time = 200.0 * random.nextDouble();
+                assertEquals(getLegacyTime(time, system), Calcs.getDisplayedTime(time, system));
+            }
+        }
+    }
+}
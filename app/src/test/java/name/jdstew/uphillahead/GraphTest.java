@@ -0,0 +1,74 @@
+package name.jdstew.uphillahead;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the Graph's columns of a synthetic trail.
+ */
+public class GraphTest {
+
+    /**
+     * Builds a trail of Nodes 100 meters apart, climbing by a meter per Node from a base
+     * elevation.
+     */
+    private static Graph buildGraph(int nodeCount, double baseElevation) {
+        return TestGraphs.straightNorth(nodeCount, i -> baseElevation + i);
+    }
+
+    @Test
+    public void fingerprint_changesWithTheNodes() {
+        long fingerprint = buildGraph(100, 1_000.0).getFingerprint();
+        assertEquals(fingerprint, buildGraph(100, 1_000.0).getFingerprint());
+        assertTrue(buildGraph(100, 1_001.0).getFingerprint() != fingerprint); // same size
+    }
+
+    @Test
+    public void viewport_beforeTheFirstNode() {
+        Graph graph = buildGraph(10, 1_000.0);
+        int[] range = new int[2];
+        graph.getViewport(-500.0, -100.0, range);
+        assertArrayEquals(new int[] {0, 0}, range);
+        graph.getViewport(-50.0, 150.0, range);
+        assertArrayEquals(new int[] {0, 2}, range);
+    }
+
+    @Test
+    public void viewport_afterTheLastNode() {
+        Graph graph = buildGraph(10, 1_000.0); // the last Node is at 900 meters
+        int[] range = new int[2];
+        graph.getViewport(1_000.0, 1_500.0, range);
+        assertArrayEquals(new int[] {9, 9}, range);
+        graph.getViewport(750.0, 1_500.0, range);
+        assertArrayEquals(new int[] {7, 9}, range);
+    }
+
+    @Test
+    public void viewport_atNodeDistances() {
+        Graph graph = buildGraph(10, 1_000.0);
+        int[] range = new int[2];
+        graph.getViewport(0.0, 900.0, range);
+        assertArrayEquals(new int[] {0, 9}, range);
+        graph.getViewport(200.0, 500.0, range); // the Nodes at the start and end, not beyond them
+        assertArrayEquals(new int[] {2, 5}, range);
+        graph.getViewport(250.0, 450.0, range);
+        assertArrayEquals(new int[] {2, 5}, range);
+    }
+
+    @Test
+    public void viewport_ofAnEmptyWindow() {
+        Graph graph = buildGraph(10, 1_000.0);
+        int[] range = new int[2];
+        graph.getViewport(300.0, 300.0, range);
+        assertArrayEquals(new int[] {3, 3}, range);
+        graph.getViewport(350.0, 350.0, range);
+        assertArrayEquals(new int[] {3, 4}, range);
+        graph.getViewport(600.0, 400.0, range); // reversed, spans no Edge
+        assertTrue(range[1] <= range[0]);
+
+        Graph single = buildGraph(1, 1_000.0);
+        single.getViewport(-100.0, 100.0, range);
+        assertArrayEquals(new int[] {0, 0}, range);
+    }
+}
@@ -0,0 +1,56 @@
+package name.jdstew.uphillahead;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the LocalProjection's distances compared to the geodesic distances of
+ * the Calcs class, see the error budget of LocalProjection.
+ */
+public class LocalProjectionTest {
+
+    private static final double[] ORIGIN_LATITUDES = {32.6, 41.0, 49.0};
+    private static final double ORIGIN_LONGITUDE = -120.0;
+    private static final double RADIUS = 100_000.0; // meters from the origin
+    private static final int SAMPLES = 20_000; // per origin
+    private static final double METERS_PER_DEGREE = 111_320.0; // approximately, of latitude
+
+    @Test
+    public void distances_areWithinErrorBudget() {
+        Random random = new Random(26);
+        float[] xy = new float[4];
+        double maxError = 0.0;
+        double maxRelativeError = 0.0;
+        for (double originLatitude : ORIGIN_LATITUDES) {
+            LocalProjection projection = new LocalProjection(originLatitude, ORIGIN_LONGITUDE);
+            double metersPerLonDegree = METERS_PER_DEGREE * Math.cos(Math.toRadians(originLatitude));
+            for (int i = 0; i < SAMPLES; ++i) {
+                // an Edge of 20 to 320 meters, at any bearing, within the radius of the origin
+                double range = RADIUS * Math.sqrt(random.nextDouble());
+                double angle = 2.0 * Math.PI * random.nextDouble();
+                double lat1 = originLatitude + range * Math.cos(angle) / METERS_PER_DEGREE;
+                double lon1 = ORIGIN_LONGITUDE + range * Math.sin(angle) / metersPerLonDegree;
+                double length = 20.0 + 300.0 * random.nextDouble();
+                double bearing = 2.0 * Math.PI * random.nextDouble();
+                double lat2 = lat1 + length * Math.cos(bearing) / METERS_PER_DEGREE;
+                double lon2 = lon1 + length * Math.sin(bearing) / metersPerLonDegree;
+                if (Math.abs(Math.toRadians(lon2 - lon1)) <= 1e-9) {
+                    continue; // Calcs.getPreciseDist() does not iterate along a meridian
+                }
+
+                projection.project(lat1, lon1, xy, 0);
+                projection.project(lat2, lon2, xy, 2);
+                double projected = Math.hypot(xy[2] - xy[0], xy[3] - xy[1]);
+                double geodesic = Calcs.getPreciseDist(lat1, lon1, lat2, lon2);
+                double error = Math.abs(projected - geodesic);
+                maxError = Math.max(maxError, error);
+                maxRelativeError = Math.max(maxRelativeError, error / geodesic);
+            }
+        }
+        assertTrue(maxError <= LocalProjection.MAX_ERROR);
+        assertTrue(maxRelativeError <= LocalProjection.MAX_RELATIVE_ERROR);
+    }
+}
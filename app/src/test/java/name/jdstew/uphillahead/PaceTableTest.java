@@ -0,0 +1,101 @@
+package name.jdstew.uphillahead;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests, and a benchmark, of the PaceTable compared to the exact pace calculation.
+ */
+public class PaceTableTest {
+
+    private static final int EDGE_COUNT = 2_000_000;
+
+    @Test
+    public void maxRelativeError_isWithinGuarantee() {
+        PaceTable table = new PaceTable(PaceModels.TOBLER);
+        assertTrue(table.getMaxRelativeError() <= PaceTable.MAX_RELATIVE_ERROR);
+
+        Random random = new Random(26);
+        for (int i = 0; i < 100_000; ++i) {
+            double slope = random.nextDouble() * 2.0 - 1.0;
+            double elev = random.nextDouble() * 4_500.0;
+            double exact = Calcs.getExactPace(slope, elev);
+            assertEquals(exact, table.getPace(slope, elev), exact * PaceTable.MAX_RELATIVE_ERROR);
+        }
+    }
+
+    @Test
+    public void pace_isExactAtAndOutsideBounds() {
+        PaceTable table = new PaceTable(PaceModels.TOBLER);
+        assertEquals(Calcs.getExactPace(0.0, 1_000.0), table.getPace(0.0, 1_000.0), 1.0e-6);
+        assertEquals(Calcs.getExactPace(1.0e-9, 1_000.0), table.getPace(1.0e-9, 1_000.0), 1.0e-6);
+        assertEquals(Calcs.getExactPace(1.5, 1_000.0), table.getPace(1.5, 1_000.0), 0.0);
+        assertEquals(Calcs.getExactPace(0.1, 5_000.0), table.getPace(0.1, 5_000.0), 0.0);
+    }
+
+    @Test
+    public void compiledModels_matchTheirModels() {
+        PaceModel[] models = {PaceModels.NAISMITH, PaceModels.LANGMUIR,
+                PaceModels.getPaceModel(Config.PACE_MODEL_CUSTOM, 40, 450, Config.PACE_ALTITUDE_ALL)};
+        for (PaceModel model : models) {
+            PaceTable table = new PaceTable(model);
+            assertSame(model, table.getModel());
+            assertTrue(table.getMaxRelativeError() <= PaceTable.STEP_RELATIVE_ERROR);
+            for (double slope = -0.8; slope <= 0.8; slope += 0.0137) {
+                double exact = model.getPace(slope, 2_250.0);
+                assertEquals(exact, table.getPace(slope, 2_250.0), exact * table.getMaxRelativeError() * 1.5);
+            }
+        }
+    }
+
+    @Test
+    public void select_recompilesOnlyChangedModels() {
+        PaceTable.select(PaceModels.NAISMITH);
+        assertSame(PaceModels.NAISMITH, PaceTable.getCurrent().getModel());
+        assertFalse(PaceTable.select(PaceModels.NAISMITH));
+        assertTrue(PaceTable.select(PaceModels.getPaceModel(Config.PACE_MODEL_CUSTOM, 50, 600, Config.PACE_ALTITUDE_NONE)));
+        assertFalse(PaceTable.select(PaceModels.getPaceModel(Config.PACE_MODEL_CUSTOM, 50, 600, Config.PACE_ALTITUDE_NONE)));
+        assertTrue(PaceTable.select(PaceModels.TOBLER));
+    }
+
+    /**
+     * Benchmark of the time to compute the pace of many Edges, by the table and exactly; not
+     * run by default, as its timing depends on the machine.
+     */
+    @Ignore("benchmark, run on demand")
+    @Test
+    public void benchmark_tableVersusExact() {
+        double[] slopes = new double[EDGE_COUNT];
+        double[] elevs = new double[EDGE_COUNT];
+        Random random = new Random(27);
+        for (int i = 0; i < EDGE_COUNT; ++i) {
+            slopes[i] = random.nextGaussian() * 0.12;
+            elevs[i] = random.nextDouble() * 4_000.0;
+        }
+        PaceTable table = new PaceTable(PaceModels.TOBLER);
+
+        double sink = 0.0;
+        long exactNanos = Long.MAX_VALUE;
+        long tableNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 5; ++run) { // the first runs are JIT warm-up
+            long start = System.nanoTime();
+            for (int i = 0; i < EDGE_COUNT; ++i) {
+                sink += Calcs.getExactPace(slopes[i], elevs[i]);
+            }
+            exactNanos = Math.min(exactNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < EDGE_COUNT; ++i) {
+                sink += table.getPace(slopes[i], elevs[i]);
+            }
+            tableNanos = Math.min(tableNanos, System.nanoTime() - start);
+        }
+
+        assertFalse(Double.isNaN(sink));
+        assertTrue(tableNanos < exactNanos);
+    }
+}
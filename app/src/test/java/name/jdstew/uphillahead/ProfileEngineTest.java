@@ -0,0 +1,300 @@
+package name.jdstew.uphillahead;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests, and a benchmark, of the ProfileEngine's geometry of a synthetic trail.
+ */
+public class ProfileEngineTest {
+
+    private static final int WIDTH = 1_080;
+    private static final int HEIGHT = 720;
+    private static final int ICON_PIXELS = 126;
+
+    /**
+     * Builds a trail rolling up and down, with a water source at its tenth Node.
+     */
+    private static Graph buildGraph(int nodeCount) {
+        return TestGraphs.straightNorth(null, nodeCount, i -> 1_000.0 + 50.0 * Math.sin(i / 10.0), (n, i) -> {
+            if (i == 10) {
+                n.setName("WA0010");
+                n.setDescription("Spring");
+            }
+        });
+    }
+
+    private static TrailMatch matchAt(Graph graph, int index, boolean isDirectionToEnd) {
+        Node n = graph.getNode(index);
+        return TrailMatch.match(graph, n.getLatitude(), n.getLongitude(), n.getElevation(), isDirectionToEnd);
+    }
+
+    @Test
+    public void vertices_areDecimatedFromTheObserver() {
+        Graph graph = buildGraph(20_000);
+        ProfileEngine engine = new ProfileEngine();
+        engine.compute(matchAt(graph, 0, true), WIDTH, HEIGHT, 1_000_000.0, 0.0, 1.0, 1.0, ICON_PIXELS);
+
+        ProfileDecimator vertices = engine.getGeometry();
+        assertTrue(engine.getEdgesWalked() > vertices.getVertexCount());
+        assertTrue(vertices.getVertexCount() <= 4 * WIDTH + 4);
+        assertEquals(0.0f, vertices.getX(0), 0.0f); // meters from the observer
+        assertEquals(0.0f, vertices.getY(0), 0.0f);
+        assertEquals(HEIGHT / 2.0f, engine.getStartingY(), 0.0f);
+        for (int v = 1; v < vertices.getVertexCount(); ++v) {
+            assertTrue(vertices.getX(v) >= vertices.getX(v - 1));
+        }
+    }
+
+    @Test
+    public void vertices_areBoundedAtAnyZoomOfTheLevel() {
+        Graph graph = buildGraph(20_000);
+        TrailMatch match = matchAt(graph, 0, true);
+        ProfileEngine engine = new ProfileEngine();
+        double levelDist = FrameRequest.getLevelOfDetail(1_000_000.0);
+        for (double zoomDist = levelDist; zoomDist > levelDist / 2.0; zoomDist -= levelDist / 8.0) {
+            engine.compute(match, WIDTH, HEIGHT, zoomDist, 0.0, 1.0, 1.0, ICON_PIXELS);
+            ProfileDecimator vertices = engine.getGeometry();
+            assertTrue(vertices.getVertexCount() <= 4 * WIDTH + 4);
+            assertTrue(vertices.getX(vertices.getVertexCount() - 1) >= zoomDist); // to the right edge
+            assertTrue(vertices.getX(vertices.getVertexCount() - 2) < zoomDist);
+        }
+    }
+
+    @Test
+    public void walk_isKeptAcrossZoomAndExaggeration() {
+        Graph graph = buildGraph(2_000);
+        TrailMatch match = matchAt(graph, 0, true);
+        ProfileEngine engine = new ProfileEngine();
+        double levelDist = FrameRequest.getLevelOfDetail(20_000.0);
+        engine.compute(match, WIDTH, HEIGHT, levelDist, 0.0, 1.0, 1.0, ICON_PIXELS);
+        assertTrue(engine.getEdgesWalked() > 0);
+        int version = engine.getGeometryVersion();
+        float endX = engine.getEndX();
+        int iconX = engine.getIcons().getX(0);
+
+        // half the exaggeration, which only scales the geometry
+        engine.compute(match, WIDTH, HEIGHT, levelDist, 0.0, 0.5, 1.0, ICON_PIXELS);
+        assertEquals(0, engine.getEdgesWalked());
+        assertEquals(version, engine.getGeometryVersion());
+
+        // a zoom within the same level of detail, which decimates the walk again
+        engine.compute(match, WIDTH, HEIGHT, levelDist * 0.75, 0.0, 0.5, 1.0, ICON_PIXELS);
+        assertEquals(0, engine.getEdgesWalked());
+        assertTrue(engine.getGeometryVersion() != version);
+        version = engine.getGeometryVersion();
+        assertEquals(WIDTH / (levelDist * 0.75), engine.getHoriScale(), 1e-9);
+        assertEquals(engine.getHoriScale() * 0.5, engine.getVertScale(), 1e-9);
+        assertEquals(endX / 0.75f, engine.getEndX(), 0.01f);
+        assertEquals(iconX / 0.75, engine.getIcons().getX(0), 2.0);
+
+        // another level of detail is walked again
+        engine.compute(match, WIDTH, HEIGHT, levelDist * 2.0, 0.0, 0.5, 1.0, ICON_PIXELS);
+        assertTrue(engine.getEdgesWalked() > 0);
+        assertTrue(engine.getGeometryVersion() != version);
+    }
+
+    @Test
+    public void iconTimes_followThePaceModel() {
+        Graph graph = buildGraph(200);
+        TrailMatch match = matchAt(graph, 0, true);
+        ProfileEngine engine = new ProfileEngine();
+        engine.compute(match, WIDTH, HEIGHT, 5_000.0, 0.0, 10.0, 1.0, ICON_PIXELS);
+        IconIndex icons = engine.getIcons();
+        double toblerTime = icons.getTime(0);
+
+        // the geometry is kept, but the icon is timed by the new model, as is the readout
+        graph.buildTimeColumns(new PaceTable(PaceModels.NAISMITH));
+        engine.compute(match, WIDTH, HEIGHT, 5_000.0, 0.0, 10.0, 1.0, ICON_PIXELS);
+        assertEquals(0, engine.getEdgesWalked());
+        assertTrue(icons.getTime(0) != toblerTime);
+        assertTrue(engine.getReadout().locate(icons.getX(0)));
+        assertEquals(engine.getReadout().getTime(), icons.getTime(0), 0.01);
+    }
+
+    @Test
+    public void readout_andIcons_followTheWalk() {
+        Graph graph = buildGraph(200);
+        ProfileEngine engine = new ProfileEngine();
+        engine.compute(matchAt(graph, 0, true), WIDTH, HEIGHT, 5_000.0, 0.0, 10.0, 1.0, ICON_PIXELS);
+
+        ProfileReadout readout = engine.getReadout();
+        assertTrue(readout.locate(WIDTH / 4));
+        double quarterDist = readout.getDistance();
+        double quarterTime = readout.getTime();
+        assertTrue(readout.locate(WIDTH / 2));
+        assertTrue(readout.getDistance() > quarterDist);
+        assertTrue(readout.getTime() > quarterTime);
+        assertEquals(2_500.0 * Units.ROUTE_DIST_CORR, readout.getDistance(), 5.0);
+
+        IconIndex icons = engine.getIcons();
+        assertEquals(1, icons.getCount());
+        assertEquals(PoiType.WATER, icons.getType(0));
+        assertTrue(icons.isBelow(0));
+        assertEquals(1_000.0 * Units.ROUTE_DIST_CORR, icons.getDistance(0), 5.0);
+        assertEquals(1_000.0 * WIDTH / 5_000.0, icons.getX(0), 1.0);
+
+        // the readout at an icon is of the icon's Node
+        assertTrue(readout.locate(icons.getX(0)));
+        assertEquals(icons.getDistance(0), readout.getDistance(), 10.0);
+        assertFalse(readout.locate(-1));
+        assertFalse(readout.locate(WIDTH + 1));
+    }
+
+    @Test
+    public void icons_areLaidOutByPriority() {
+        Graph graph = TestGraphs.straightNorth(null, 200, i -> 1_000.0, (n, i) -> {
+            if (i >= 20 && i < 25) { // a cluster of camps, with a water source amid them
+                n.setName(i == 23 ? "WA0023" : "CS0" + i);
+                n.setDescription("Lake");
+            } else if (i == 100) {
+                n.setName("Trail junction");
+                n.setDescription("Sign");
+            }
+        });
+
+        ProfileEngine engine = new ProfileEngine();
+        engine.compute(matchAt(graph, 0, true), WIDTH, HEIGHT, 20_000.0, 0.0, 1.0, 1.0, ICON_PIXELS);
+        IconIndex icons = engine.getIcons();
+        assertEquals(6, icons.getCount());
+
+        int shown = 0;
+        int hidden = 0;
+        for (int i = 0; i < icons.getCount(); ++i) {
+            if (icons.isShown(i)) {
+                ++shown;
+                hidden += icons.getClusterCount(i);
+            } else {
+                assertEquals(0, icons.getClusterCount(i));
+            }
+        }
+        assertEquals(icons.getCount(), shown + hidden);
+
+        // water is drawn below, so does not collide with the camps above, which are clustered
+        int water = -1;
+        int camp = -1;
+        for (int i = 0; i < icons.getCount(); ++i) {
+            if (icons.getType(i) == PoiType.WATER) {
+                water = i;
+            } else if (icons.getType(i) == PoiType.CAMP && icons.isShown(i)) {
+                assertEquals(-1, camp);
+                camp = i;
+            }
+        }
+        assertTrue(icons.isShown(water));
+        assertEquals(3, icons.getClusterCount(camp));
+        assertEquals(PoiType.CAMP, icons.getType(0));
+        assertEquals(0, camp); // the nearest camp
+
+        // a touch finds only the shown icons
+        int touchY = icons.getY(camp) - ICON_PIXELS / 2;
+        assertEquals(camp, icons.find(icons.getX(camp + 1), touchY, ICON_PIXELS));
+    }
+
+    @Test
+    public void bands_areWithinTheView() {
+        Graph graph = buildGraph(2_000);
+        ProfileEngine engine = new ProfileEngine();
+        engine.compute(matchAt(graph, 500, true), WIDTH, HEIGHT, 20_000.0, 0.5, 5.0, 1.0, ICON_PIXELS);
+
+        assertTrue(engine.getBandCount() > 0);
+        for (int band = 0; band < engine.getBandCount(); ++band) {
+            assertTrue(engine.getBandStart(band) >= 0.0f);
+            assertTrue(engine.getBandEnd(band) <= WIDTH + 1.0f);
+            assertTrue(engine.getBandStart(band) <= engine.getBandEnd(band));
+        }
+        assertEquals(HEIGHT / 2.0f * 1.5f, engine.getStartingY(), 0.0f);
+    }
+
+    @Test
+    public void endOfTrail_isWithinTheView() {
+        Graph graph = buildGraph(101); // 10 Km
+        ProfileEngine engine = new ProfileEngine();
+        engine.compute(matchAt(graph, 0, true), WIDTH, HEIGHT, 20_000.0, 0.0, 1.0, 1.0, ICON_PIXELS);
+        assertEquals(WIDTH / 2.0f, engine.getEndX(), 1.0f);
+
+        engine.compute(matchAt(graph, 50, true), WIDTH, HEIGHT, 5_000.0, 0.0, 1.0, 1.0, ICON_PIXELS);
+        assertTrue(engine.getEndX() >= WIDTH);
+    }
+
+    @Test
+    public void directionToStart_walksBackwards() {
+        Graph graph = buildGraph(200);
+        ProfileEngine engine = new ProfileEngine();
+        engine.compute(matchAt(graph, 20, false), WIDTH, HEIGHT, 5_000.0, 0.0, 10.0, 1.0, ICON_PIXELS);
+
+        assertEquals(1, engine.getIcons().getCount());
+        assertEquals(1_000.0 * Units.ROUTE_DIST_CORR, engine.getIcons().getDistance(0), 5.0);
+        assertEquals(2_000.0 * WIDTH / 5_000.0, engine.getEndX(), 1.0);
+
+        ProfileReadout readout = engine.getReadout();
+        assertTrue(readout.locate(WIDTH / 4));
+        double quarterDist = readout.getDistance();
+        double quarterTime = readout.getTime();
+        assertTrue(quarterDist > 0.0);
+        assertTrue(readout.locate((int) engine.getEndX() - 1));
+        assertTrue(readout.getDistance() > quarterDist);
+        assertTrue(readout.getTime() > quarterTime);
+    }
+
+    @Test
+    public void overview_spansTheWholeGraph() {
+        Graph graph = buildGraph(2_000);
+        ProfileOverview overview = graph.getOverview();
+        assertSame(overview, graph.getOverview());
+        assertEquals(Config.OVERVIEW_BUCKETS, overview.getBucketCount());
+        assertEquals(1_999 * TestGraphs.EDGE_DIST, overview.getTotalDistance(), 1.0);
+        assertEquals(950.0f, overview.getLowestElevation(), 0.1f);
+        assertEquals(1_050.0f, overview.getHighestElevation(), 0.1f);
+        for (int b = 0; b < overview.getBucketCount(); ++b) {
+            assertTrue(overview.getMaxElevation(b) >= overview.getLowestElevation());
+            assertTrue(overview.getMaxElevation(b) <= overview.getHighestElevation());
+        }
+
+        Graph sparse = buildGraph(10); // fewer Nodes than buckets
+        ProfileOverview sparseOverview = sparse.getOverview();
+        assertEquals((float) sparse.getNode(0).getElevation(), sparseOverview.getMaxElevation(1), 0.0f);
+        assertEquals((float) sparse.getNode(9).getElevation(), sparseOverview.getMaxElevation(Config.OVERVIEW_BUCKETS - 1), 0.0f);
+    }
+
+    /**
+     * Benchmark of the time to walk a view of a long trail, to only scale it again, and to
+     * decimate it again for a zoom; not run by default, as its timing depends on the machine.
+     */
+    @Ignore("benchmark, run on demand")
+    @Test
+    public void compute_benchmark() {
+        Graph graph = buildGraph(200_000);
+        TrailMatch match = matchAt(graph, 1_000, true);
+        ProfileEngine engine = new ProfileEngine();
+        TrailMatch nextMatch = matchAt(graph, 1_001, true); // walked again, alternating with match
+        engine.compute(match, WIDTH, HEIGHT, 100_000.0, 0.0, 10.0, 1.0, ICON_PIXELS); // warm up
+
+        int runs = 20;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < runs; ++i) {
+            engine.compute(i % 2 == 0 ? nextMatch : match, WIDTH, HEIGHT, 100_000.0, 0.0, 10.0, 1.0, ICON_PIXELS);
+        }
+        long walkNanos = (System.nanoTime() - startTime) / runs;
+        assertTrue(engine.getEdgesWalked() > 0);
+        assertTrue(engine.getGeometry().getVertexCount() <= 4 * WIDTH + 4);
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < runs; ++i) {
+            engine.compute(match, WIDTH, HEIGHT, 100_000.0, 0.0, 1.0 + i, 1.0, ICON_PIXELS);
+        }
+        long scaleNanos = (System.nanoTime() - startTime) / runs;
+        assertEquals(0, engine.getEdgesWalked());
+        assertTrue(scaleNanos < walkNanos);
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < runs; ++i) { // within the level of detail, so decimated again
+            engine.compute(match, WIDTH, HEIGHT, 100_000.0 - 1_000.0 * i, 0.0, 10.0, 1.0, ICON_PIXELS);
+        }
+        long zoomNanos = (System.nanoTime() - startTime) / runs;
+        assertEquals(0, engine.getEdgesWalked());
+        assertTrue(zoomNanos < walkNanos);
+    }
+}
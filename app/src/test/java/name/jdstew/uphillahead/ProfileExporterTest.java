@@ -0,0 +1,150 @@
+package name.jdstew.uphillahead;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests, and a benchmark, of the ProfileExporter's SVG and PNG files of synthetic
+ * sections.
+ */
+public class ProfileExporterTest {
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 200;
+    /**
+     * Builds a section over a hill, with a water source and a campsite.
+     */
+    private static Graph buildGraph(String name, int nodeCount) {
+        return TestGraphs.straightNorth(name, nodeCount, i -> 1_000.0 + 500.0 * Math.sin(Math.PI * i / (nodeCount - 1)), (n, i) -> {
+            if (i == nodeCount / 4) {
+                n.setName("WA0010");
+                n.setDescription("Spring & creek");
+            } else if (i == nodeCount / 2) {
+                n.setName("CS0020");
+                n.setDescription("Camp <summit>");
+            }
+        });
+    }
+
+    /**
+     * Deletes a temporary folder of exported files.
+     */
+    private static void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(folder.delete());
+    }
+
+    @Test
+    public void png_isDecodable() throws Exception {
+        ProfileExporter exporter = new ProfileExporter(WIDTH, HEIGHT, 10.0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writePng(buildGraph("Section A", 2_000), out);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertNotNull(image);
+        assertEquals(WIDTH, image.getWidth());
+        assertEquals(HEIGHT, image.getHeight());
+        assertEquals(0xc3b091, image.getRGB(WIDTH / 2, HEIGHT - 1) & 0xffffff); // earth below the summit
+        assertTrue((image.getRGB(WIDTH / 2, 0) & 0xffffff) != 0xc3b091); // a band above it
+    }
+
+    @Test
+    public void svg_isWellFormed() throws Exception {
+        ProfileExporter exporter = new ProfileExporter(WIDTH, HEIGHT, 10.0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeSvg(buildGraph("Section <B>", 2_000), out);
+
+        Document svg = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("svg", svg.getDocumentElement().getTagName());
+        assertEquals(2, svg.getElementsByTagName("circle").getLength());
+        assertEquals(1, svg.getElementsByTagName("polyline").getLength());
+        assertEquals("Section <B>", svg.getElementsByTagName("title").item(0).getTextContent());
+    }
+
+    @Test
+    public void exportAll_writesEverySection() throws Exception {
+        List<Graph> graphs = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            graphs.add(buildGraph("Section " + (char) ('A' + i), 1_000 + 100 * i));
+        }
+        File folder = Files.createTempDirectory("profiles").toFile();
+
+        ProfileExporter exporter = new ProfileExporter(WIDTH, HEIGHT, 10.0);
+        try {
+            assertEquals(graphs.size(), exporter.exportAll(graphs, folder));
+            for (Graph graph : graphs) {
+                assertTrue(new File(folder, ProfileExporter.getFileName(graph) + ".svg").length() > 0);
+                assertTrue(new File(folder, ProfileExporter.getFileName(graph) + ".png").length() > 0);
+            }
+            assertEquals("Section_A", ProfileExporter.getFileName(graphs.get(0)));
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    @Test
+    public void exportAll_namesTheFailedSections() throws Exception {
+        List<Graph> graphs = new ArrayList<>();
+        graphs.add(buildGraph("Section A", 1_000));
+        graphs.add(buildGraph("Section B", 1_000));
+        File folder = Files.createTempDirectory("profiles").toFile();
+        File missing = new File(folder, "missing"); // so neither file may be written
+
+        ProfileExporter exporter = new ProfileExporter(WIDTH, HEIGHT, 10.0);
+        try {
+            exporter.exportAll(graphs, missing);
+            fail("exported into a missing folder");
+        } catch (IOException ioe) {
+            assertTrue(ioe.getMessage().contains("Section A"));
+            assertTrue(ioe.getMessage().contains("Section B"));
+            assertEquals(graphs.size(), ioe.getSuppressed().length);
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    /**
+     * Benchmark of the time to export an atlas of long sections; not run by default, as it
+     * writes many large files and its timing depends on the machine.
+     */
+    @Ignore("benchmark, run on demand")
+    @Test
+    public void exportAll_benchmark() throws Exception {
+        List<Graph> graphs = new ArrayList<>();
+        for (int i = 0; i < 16; ++i) {
+            graphs.add(buildGraph("Section " + i, 50_000));
+        }
+        File folder = Files.createTempDirectory("atlas").toFile();
+
+        ProfileExporter exporter = new ProfileExporter(Config.EXPORT_WIDTH, Config.EXPORT_HEIGHT, Config.EXAGGERATION_DEFAULT);
+        try {
+            long startTime = System.nanoTime();
+            assertEquals(graphs.size(), exporter.exportAll(graphs, folder));
+            long millis = (System.nanoTime() - startTime) / 1_000_000;
+            assertTrue(millis < 60_000); // 16 sections of 5,000 km, within a minute
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package name.jdstew.uphillahead;
+
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Synthetic trails shared by the local unit tests.
+ */
+final class TestGraphs {
+
+    static final double LATITUDE_STEP = 0.0009; // about 100 meters
+    static final double EDGE_DIST = 100.0;
+
+    private TestGraphs() {
+    }
+
+    /**
+     * Builds an unnamed trail heading north, without points of interest.
+     *
+     * @param nodeCount number of Nodes, EDGE_DIST apart
+     * @param elevationFn elevation of each Node, by its index
+     * @return the Graph, with its columns and times built
+     */
+    static Graph straightNorth(int nodeCount, IntToDoubleFunction elevationFn) {
+        return straightNorth(null, nodeCount, elevationFn, (n, i) -> { });
+    }
+
+    /**
+     * Builds a named trail heading north.
+     *
+     * @param name of the Graph, or null
+     * @param nodeCount number of Nodes, EDGE_DIST apart
+     * @param elevationFn elevation of each Node, by its index
+     * @param poiFn names (and describes) a Node by its index, e.g., as a water source
+     * @return the Graph, with its columns and times built
+     */
+    static Graph straightNorth(String name, int nodeCount, IntToDoubleFunction elevationFn, ObjIntConsumer<Node> poiFn) {
+        Graph graph = new Graph();
+        graph.setName(name);
+        for (int i = 0; i < nodeCount; ++i) {
+            Node n = new Node(45.0 + i * LATITUDE_STEP, -121.0, elevationFn.applyAsDouble(i));
+            poiFn.accept(n, i);
+            graph.appendNode(n, i == 0 ? -1.0 : EDGE_DIST);
+        }
+        graph.buildColumns();
+        graph.buildTimeColumns(PaceTable.getCurrent());
+        return graph;
+    }
+}